@@ -5,15 +5,14 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedSet;
-import java.util.Stack;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
 import graphletgeneration.AbstractGraphletFactory;
 import graphlets.AbstractGraph;
 import graphlets.GraphletIO;
+import graphlets.IntSlice;
 import graphlets.coGraphlet.CoGraph;
 
 /**
@@ -48,7 +47,7 @@ public class CommonsCounter<U extends Comparable<U>> {
 	 *            edge combinations for the common neighbours.
 	 */
 	public CommonsCounter(AbstractGraph<U> graph, int order, AbstractGraphletFactory<?, U> factory) {
-		this.graph = graph;
+		this.graph = graph.freeze();
 		commons = new HashMap<>();
 		types = factory.getEdgeTypes();
 		typeCombos = factory.edgeCombinations();
@@ -81,23 +80,36 @@ public class CommonsCounter<U extends Comparable<U>> {
 	
 	
 	/**
-	 * Calculate the common neighbours.
+	 * Calculate the common neighbours. The common neighbours of the first
+	 * <code>i+1</code> chosen nodes are kept in <code>common[i]</code>; every
+	 * level after the first is intersected into its own reusable buffer. On the
+	 * last level, the common neighbours are only counted.
 	 */
 	private void iterativeCommons() {
 		int[] counter = new int[order];
 		for (int i = 1; i < order; i++)
 			counter[i] = -1;
 		int i = 0;
-		Stack<Set<Integer>> common = new Stack<>();// for backtracking purposes
+		IntSlice[] common = new IntSlice[order];// for backtracking purposes
+		int[][] buffers = new int[order][0];
 		int size = typeCombos.size();
 		while (counter[0] < graphorder * size) {
+			IntSlice neighbours = graph.getNeighbourSlice(counter[i] / size, typeCombos.get(counter[i] % size));
+			int count;
 			if (i == 0) {
-				common.push(graph.getNeighbours(counter[i] / size, typeCombos.get(counter[i] % size)));
+				common[i] = neighbours;
+				count = neighbours.size();
+			} else if (i == order - 1) {
+				count = common[i - 1].intersectionSize(neighbours);
 			} else {
-				common.push(new TreeSet<>(common.peek()));
-				common.peek().retainAll(graph.getNeighbours(counter[i] / size, typeCombos.get(counter[i] % size)));
+				int capacity = Math.min(common[i - 1].size(), neighbours.size());
+				if (buffers[i].length < capacity) {
+					buffers[i] = new int[Math.max(capacity, 2 * buffers[i].length)];
+				}
+				count = common[i - 1].intersect(neighbours, buffers[i]);
+				common[i] = new IntSlice(buffers[i], 0, count);
 			}
-			if (common.peek().size() > 0) { // first as a map, then as a list...
+			if (count > 0) { // first as a map, then as a list...
 				Map<U, SortedSet<Integer>> map = new TreeMap<>();
 				for (U type : types) {
 					map.put(type, new TreeSet<>());
@@ -111,20 +123,17 @@ public class CommonsCounter<U extends Comparable<U>> {
 				for (int j = 0; j < types.size(); j++) {
 					key.add(map.get(types.get(j)));
 				}
-				commons.put(key, common.peek().size());
+				commons.put(key, count);
 //			}else {
 //				System.out.println(Arrays.toString(counter));
 //				System.out.println(common.peek());
 			}
-			if (i == order - 1 || common.peek().isEmpty()) {
-				common.pop();
-			} else {
+			if (i < order - 1 && count > 0) {
 				i++;
 				counter[i] = counter[i - 1];
 			}
 			while (i > 0 && counter[i] == graphorder * size - 1) {
 				counter[i--] = -1;
-				common.pop();
 			}
 			counter[i]++;
 		}
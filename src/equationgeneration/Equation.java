@@ -53,6 +53,19 @@ public class Equation<E extends AbstractGraphlet<?>> implements Comparable<Equat
 		order = rhsGraphlet.getOrder()+1;
 	}
 
+	/**
+	 * Creates an equation from its stored parts, as read by {@link EquationIO}.
+	 */
+	Equation(SortedMap<String, Integer> lhs, String rhsGraphlet, Set<List<Set<Integer>>> rhs, int minus,
+			List<?> edgeTypes, int order) {
+		this.lhs = lhs;
+		this.rhsGraphlet = rhsGraphlet;
+		this.commons = rhs;
+		this.minus = minus;
+		this.edgeTypes = edgeTypes;
+		this.order = order;
+	}
+
 	@Override
 	public int compareTo(Equation<E> arg0) {
 		String e1 = lhs.firstKey();
@@ -140,6 +153,15 @@ public class Equation<E extends AbstractGraphlet<?>> implements Comparable<Equat
 		return minus;
 	}
 
+	/**
+	 * Returns the order of the graphlets in the equation's left-hand side.
+	 * 
+	 * @return the order of the equation.
+	 */
+	public int getOrder() {
+		return order;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
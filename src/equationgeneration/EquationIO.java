@@ -0,0 +1,193 @@
+package equationgeneration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractGraphlet;
+import graphlets.CanonicalComparator;
+
+/**
+ * Binary format for the equations made by an {@link EquationGenerator}.
+ *
+ * After a header with the factory class, orbit setting and number of edge
+ * types the equations were made for, every equation is written as its
+ * right-hand side graphlet, negative term, left-hand side terms with their
+ * factors and common neighbour terms. A common neighbour term has a set of
+ * graphlet nodes for every edge type. The equations are read back in the order
+ * in which they were written.
+ */
+public class EquationIO {
+
+	private static final int MAGIC = 0x53444551; // "SDEQ"
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private EquationIO() {
+	}
+
+	/**
+	 * Writes the given equations to the given file.
+	 *
+	 * @param equations
+	 *            The equations to be written.
+	 * @param factory
+	 *            The graphlet factory the equations were made with.
+	 * @param file
+	 *            The file to write to.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void write(
+			Collection<Equation<T>> equations, AbstractGraphletFactory<T, U> factory, File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+			write(equations, factory, out);
+		}
+	}
+
+	/**
+	 * Writes the given equations to the given output.
+	 *
+	 * @param equations
+	 *            The equations to be written.
+	 * @param factory
+	 *            The graphlet factory the equations were made with.
+	 * @param out
+	 *            The output to write to.
+	 * @throws IOException
+	 *             if the output can not be written.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void write(
+			Collection<Equation<T>> equations, AbstractGraphletFactory<T, U> factory, DataOutput out)
+			throws IOException {
+		int edgeTypes = factory.getEdgeTypes().size();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(factory.getClass().getName());
+		out.writeBoolean(factory.isOrbitRep());
+		out.writeInt(edgeTypes);
+		out.writeInt(equations.size());
+		for (Equation<T> equation : equations) {
+			out.writeInt(equation.getOrder());
+			out.writeUTF(equation.getRhsGraphlet());
+			out.writeInt(equation.getMinus());
+			out.writeInt(equation.getLhs().size());
+			for (Map.Entry<String, Integer> term : equation.getLhs().entrySet()) {
+				out.writeUTF(term.getKey());
+				out.writeInt(term.getValue());
+			}
+			out.writeInt(equation.getCommons().size());
+			for (List<Set<Integer>> term : equation.getCommons()) {
+				if (term.size() != edgeTypes) {
+					throw new IOException("Equation does not match the edge types of " + factory.name());
+				}
+				for (Set<Integer> nodes : term) {
+					out.writeInt(nodes.size());
+					for (int node : nodes) {
+						out.writeInt(node);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads equations written by
+	 * {@link #write(Collection, AbstractGraphletFactory, File)}.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @param factory
+	 *            The graphlet factory the equations were made with.
+	 * @return the equations.
+	 * @throws IOException
+	 *             if the file can not be read, does not contain equations or
+	 *             belongs to another kind of graphlets.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> Collection<Equation<T>> read(File file,
+			AbstractGraphletFactory<T, U> factory) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			return read(in, factory);
+		}
+	}
+
+	/**
+	 * Reads equations written by
+	 * {@link #write(Collection, AbstractGraphletFactory, DataOutput)}.
+	 *
+	 * @param in
+	 *            The input to read from.
+	 * @param factory
+	 *            The graphlet factory the equations were made with.
+	 * @return the equations.
+	 * @throws IOException
+	 *             if the input can not be read, does not contain equations or
+	 *             belongs to another kind of graphlets.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> Collection<Equation<T>> read(DataInput in,
+			AbstractGraphletFactory<T, U> factory) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a set of equations");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported equation version " + version);
+		}
+		List<U> edgeTypes = factory.getEdgeTypes();
+		String factoryClass = in.readUTF();
+		boolean orbitRep = in.readBoolean();
+		int typeCount = in.readInt();
+		if (!factoryClass.equals(factory.getClass().getName()) || orbitRep != factory.isOrbitRep()
+				|| typeCount != edgeTypes.size()) {
+			throw new IOException("Equations made for other graphlets");
+		}
+		int count = in.readInt();
+		Collection<Equation<T>> result = new TreeSet<>();
+		for (int i = 0; i < count; i++) {
+			int order = in.readInt();
+			String rhsGraphlet = in.readUTF();
+			int minus = in.readInt();
+			int lhsSize = in.readInt();
+			SortedMap<String, Integer> lhs = new TreeMap<>(new CanonicalComparator());
+			for (int j = 0; j < lhsSize; j++) {
+				String graphlet = in.readUTF();
+				lhs.put(graphlet, in.readInt());
+			}
+			int commonsSize = in.readInt();
+			Set<List<Set<Integer>>> commons = new LinkedHashSet<>();
+			for (int j = 0; j < commonsSize; j++) {
+				List<Set<Integer>> term = new ArrayList<>(edgeTypes.size());
+				for (int k = 0; k < edgeTypes.size(); k++) {
+					Set<Integer> nodes = new TreeSet<>();
+					int size = in.readInt();
+					for (int l = 0; l < size; l++) {
+						nodes.add(in.readInt());
+					}
+					term.add(nodes);
+				}
+				commons.add(term);
+			}
+			result.add(new Equation<T>(lhs, rhsGraphlet, commons, minus, edgeTypes, order));
+		}
+		return result;
+	}
+}
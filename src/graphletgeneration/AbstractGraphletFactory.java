@@ -1,10 +1,12 @@
 package graphletgeneration;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.SortedSet;
 
 import graphlets.AbstractGraphlet;
+import graphlets.GraphletCode;
 
 /**
  * Abstract factory class for graphlets of any type. This class mainly concerns
@@ -24,6 +26,7 @@ public abstract class AbstractGraphletFactory<T extends AbstractGraphlet<U>, U e
 	 */
 	private static final long serialVersionUID = -2380679247852143419L;
 	protected boolean isOrbitRep;
+	private transient GraphletCode.Alphabet codeAlphabet;
 
 	/**
 	 * Create a graphlet factory that generates either normal graphlets or orbit
@@ -65,6 +68,84 @@ public abstract class AbstractGraphletFactory<T extends AbstractGraphlet<U>, U e
 	 */
 	protected abstract char[] validCharacters();
 
+	/**
+	 * Returns the characters that can occur in this graphlet type's
+	 * representations, ordered like the {@link graphlets.CanonicalComparator}
+	 * orders them: <code>'0'</code> first, then the valid characters in
+	 * increasing order. This is the alphabet of the graphlets' codes.
+	 * 
+	 * @return the alphabet of this graphlet type's representations.
+	 */
+	public char[] alphabet() {
+		return codeAlphabet().getCharacters();
+	}
+
+	/**
+	 * Returns the alphabet of this graphlet type's codes. It is made the first
+	 * time it is needed, and then kept for all later codes.
+	 * 
+	 * @return the alphabet of this graphlet type's codes.
+	 */
+	protected GraphletCode.Alphabet codeAlphabet() {
+		if (codeAlphabet == null) {
+			char[] valid = validCharacters();
+			char[] result = new char[valid.length + 1];
+			result[0] = '0';
+			System.arraycopy(valid, 0, result, 1, valid.length);
+			Arrays.sort(result, 1, result.length);
+			codeAlphabet = new GraphletCode.Alphabet(result);
+		}
+		return codeAlphabet;
+	}
+
+	/**
+	 * Checks whether the representations of graphlets of the given order fit in
+	 * a code.
+	 * 
+	 * @param order
+	 *            The order of the graphlets.
+	 * @return <code>true</code> if the graphlets of the given order can be
+	 *         packed into codes.
+	 */
+	public boolean fitsCode(int order) {
+		return GraphletCode.fits(representationLength(order), codeAlphabet());
+	}
+
+	/**
+	 * Packs the given representation into a code.
+	 * 
+	 * @param representation
+	 *            The representation of a graphlet of this type.
+	 * @return the code of the representation.
+	 */
+	public GraphletCode encode(String representation) {
+		return GraphletCode.encode(representation, codeAlphabet());
+	}
+
+	/**
+	 * Unpacks the given code into a representation.
+	 * 
+	 * @param code
+	 *            The code of a graphlet of this type.
+	 * @return the representation of the code.
+	 */
+	public String decode(GraphletCode code) {
+		return code.decode(codeAlphabet());
+	}
+
+	/**
+	 * Returns the code of the given graphlet's canonical representation. The
+	 * code is made from the graphlet's canonical labelling, without building
+	 * the representation.
+	 * 
+	 * @param graphlet
+	 *            The graphlet whose code is returned.
+	 * @return the code of the graphlet's canonical form.
+	 */
+	public GraphletCode canonicalCode(T graphlet) {
+		return GraphletCode.canonical(graphlet, codeAlphabet());
+	}
+
 	/**
 	 * Returns the length of a representation of a graphlet of the given order.
 	 * 
@@ -83,6 +164,17 @@ public abstract class AbstractGraphletFactory<T extends AbstractGraphlet<U>, U e
 	 */
 	public abstract T toGraphlet(String representation);
 
+	/**
+	 * Construct the graphlet with the given code.
+	 * 
+	 * @param code
+	 *            The code of the graphlet to be created.
+	 * @return The graphlet with the given code.
+	 */
+	public T toGraphlet(GraphletCode code) {
+		return toGraphlet(decode(code));
+	}
+
 	/**
 	 * Construct the minimal graphlet of this type. It has only one node and no
 	 * edges. For graphlets that have a representation with a length more than 0 for
@@ -0,0 +1,650 @@
+package graphlets;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Abstract class for frozen graphs in compressed sparse row (CSR) form. All
+ * adjacency information is kept in two primitive arrays: <code>targets</code>
+ * holds the neighbours of every row back to back, sorted within each row, and
+ * <code>offsets</code> holds the index in <code>targets</code> where every row
+ * starts, followed by the total number of targets. Subclasses decide which rows
+ * belong to which combination of node and edge type.
+ *
+ * Compact graphs are built once from a regular graph and can not be modified
+ * afterwards, so they can be shared by any number of threads.
+ *
+ * Optionally, rows with many neighbours can additionally be stored as bitsets
+ * (see {@link #indexHubs(int)}). Membership tests on those rows are then a
+ * single bit lookup, and intersections with them only need to probe the other
+ * row.
+ *
+ * A compact graph with renumbered nodes can be made to improve locality (see
+ * {@link #relabelByDegree()} and {@link #relabelByBandwidth()}). The original
+ * numbering remains available through {@link #getOriginalNode(int)} and
+ * {@link #getNode(int)}.
+ *
+ * Indexing hubs and relabelling return a new graph and leave this one as it
+ * is.
+ *
+ * @param <T>
+ *            A datatype with which the graph represents its edge types.
+ */
+public abstract class AbstractCompactGraph<T extends Comparable<T>> extends AbstractGraph<T> {
+
+	protected final int[] offsets;
+	protected final int[] targets;
+	private final long[][] hubs;
+	private final int hubDegree;
+	private final int[] originalNodes;
+	private final int[] nodes;
+
+	/**
+	 * Creates a compact graph with the given adjacency arrays.
+	 *
+	 * @param order
+	 *            The number of nodes in the graph.
+	 * @param size
+	 *            The number of edges in the graph.
+	 * @param offsets
+	 *            The start of every row in <code>targets</code>, followed by the
+	 *            length of <code>targets</code>.
+	 * @param targets
+	 *            The sorted rows of neighbours, back to back.
+	 */
+	protected AbstractCompactGraph(int order, int size, int[] offsets, int[] targets) {
+		this.order = order;
+		this.size = size;
+		this.offsets = offsets;
+		this.targets = targets;
+		hubs = null;
+		hubDegree = Integer.MAX_VALUE;
+		originalNodes = null;
+		nodes = null;
+	}
+
+	/**
+	 * Creates a compact graph with the same order, size and node names as the
+	 * given one, but with the given adjacency arrays, numbering and hub
+	 * bitsets.
+	 *
+	 * @param graph
+	 *            The graph that is copied.
+	 * @param offsets
+	 *            The start of every row in <code>targets</code>, followed by the
+	 *            length of <code>targets</code>.
+	 * @param targets
+	 *            The sorted rows of neighbours, back to back.
+	 * @param originalNodes
+	 *            The original index of every node, or <code>null</code> if the
+	 *            nodes were not renumbered.
+	 * @param hubDegree
+	 *            The minimal number of neighbours of the rows that get a bitset,
+	 *            or {@link Integer#MAX_VALUE} for none.
+	 */
+	protected AbstractCompactGraph(AbstractCompactGraph<T> graph, int[] offsets, int[] targets, int[] originalNodes,
+			int hubDegree) {
+		this.order = graph.order;
+		this.size = graph.size;
+		this.nodeNames = graph.nodeNames;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.originalNodes = originalNodes;
+		if (originalNodes == null) {
+			nodes = null;
+		} else {
+			nodes = new int[order];
+			for (int node = 0; node < order; node++) {
+				nodes[originalNodes[node]] = node;
+			}
+		}
+		this.hubDegree = hubDegree;
+		hubs = hubsOf(order, offsets, targets, hubDegree);
+	}
+
+	/**
+	 * Returns a graph of the same class as this one, with the given adjacency
+	 * arrays, numbering and hub bitsets, and everything else copied from this
+	 * graph. Implementations call
+	 * {@link #AbstractCompactGraph(AbstractCompactGraph, int[], int[], int[], int)}.
+	 *
+	 * @param offsets
+	 *            The start of every row in <code>targets</code>, followed by the
+	 *            length of <code>targets</code>.
+	 * @param targets
+	 *            The sorted rows of neighbours, back to back.
+	 * @param originalNodes
+	 *            The original index of every node, or <code>null</code>.
+	 * @param hubDegree
+	 *            The minimal number of neighbours of the rows that get a bitset.
+	 * @return the new graph.
+	 */
+	protected abstract AbstractCompactGraph<T> derive(int[] offsets, int[] targets, int[] originalNodes,
+			int hubDegree);
+
+	/**
+	 * Creates a compact graph with the given rows.
+	 *
+	 * @param order
+	 *            The number of nodes in the graph.
+	 * @param size
+	 *            The number of edges in the graph.
+	 * @param rows
+	 *            The rows of the graph, each of them sorted in ascending order.
+	 */
+	protected AbstractCompactGraph(int order, int size, List<? extends Collection<Integer>> rows) {
+		this(order, size, offsetsOf(rows), rows);
+	}
+
+	private AbstractCompactGraph(int order, int size, int[] offsets, List<? extends Collection<Integer>> rows) {
+		this(order, size, offsets, targetsOf(rows, offsets));
+	}
+
+	/**
+	 * Returns the given row as a SortedSet view.
+	 *
+	 * @param row
+	 *            The index of the row.
+	 * @return the neighbours in the given row.
+	 */
+	protected IntSlice row(int row) {
+		return new IntSlice(targets, offsets[row], offsets[row + 1], hubs == null ? null : hubs[row]);
+	}
+
+	/**
+	 * Returns the number of neighbours in the given row.
+	 *
+	 * @param row
+	 *            The index of the row.
+	 * @return the length of the given row.
+	 */
+	protected int rowSize(int row) {
+		return offsets[row + 1] - offsets[row];
+	}
+
+	/**
+	 * Checks whether the given row contains the given node, using a binary search.
+	 *
+	 * @param row
+	 *            The index of the row.
+	 * @param node
+	 *            The node to look for.
+	 * @return <code>true</code> if the node is present in the row.
+	 */
+	protected boolean rowContains(int row, int node) {
+		if (hubs != null && hubs[row] != null) {
+			return (hubs[row][node >>> 6] & (1L << node)) != 0;
+		}
+		int low = offsets[row];
+		int high = offsets[row + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = targets[mid];
+			if (value < node) {
+				low = mid + 1;
+			} else if (value > node) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a copy of this graph in which every row with at least the given
+	 * number of neighbours also has a bitset. Each of these bitsets takes
+	 * <code>order / 8</code> bytes, so the threshold bounds the extra memory to
+	 * <code>size / minDegree * order / 8</code> bytes per edge type. The
+	 * bitsets of this graph, if any, are not kept; a threshold of
+	 * {@link Integer#MAX_VALUE} gives a copy without bitsets. The adjacency
+	 * arrays are shared with this graph.
+	 *
+	 * @param minDegree
+	 *            The minimal number of neighbours in a row for it to get a
+	 *            bitset. Must be positive.
+	 * @return the graph with the given bitsets.
+	 */
+	public AbstractCompactGraph<T> indexHubs(int minDegree) {
+		if (minDegree <= 0) {
+			throw new IllegalArgumentException("Invalid hub degree " + minDegree);
+		}
+		return derive(offsets, targets, originalNodes, minDegree);
+	}
+
+	/**
+	 * Makes a bitset for every row with at least the given number of
+	 * neighbours.
+	 *
+	 * @return the bitsets by row, or <code>null</code> if there are none.
+	 */
+	private static long[][] hubsOf(int order, int[] offsets, int[] targets, int minDegree) {
+		int rows = offsets.length - 1;
+		long[][] result = new long[rows][];
+		boolean any = false;
+		for (int row = 0; row < rows; row++) {
+			if (offsets[row + 1] - offsets[row] >= minDegree) {
+				long[] bits = new long[(order + 63) >>> 6];
+				for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+					bits[targets[i] >>> 6] |= 1L << targets[i];
+				}
+				result[row] = bits;
+				any = true;
+			}
+		}
+		return any ? result : null;
+	}
+
+	/**
+	 * Returns the class of the graph this compact graph was made from, e.g.
+	 * SimpleGraph for a CompactSimpleGraph. This is the type that is recorded
+	 * when the graph is stored.
+	 *
+	 * @return the type of the original graph.
+	 */
+	public abstract Class<?> getSourceType();
+
+	/**
+	 * Compact graphs are already frozen, so this returns the graph itself.
+	 */
+	@Override
+	public AbstractCompactGraph<T> freeze() {
+		return this;
+	}
+
+	@Override
+	public int getOriginalNode(int node) {
+		return originalNodes == null ? node : originalNodes[node];
+	}
+
+	@Override
+	public int getNode(int originalNode) {
+		return nodes == null ? originalNode : nodes[originalNode];
+	}
+
+	/**
+	 * Returns the total number of neighbours of the given node, over all of its
+	 * rows.
+	 */
+	private int degree(int node, int rowsPerNode) {
+		return offsets[(node + 1) * rowsPerNode] - offsets[node * rowsPerNode];
+	}
+
+	/**
+	 * Returns a copy of this graph with the nodes renumbered by decreasing
+	 * degree, so that the nodes with the most neighbours get the lowest
+	 * indices. Nodes with the same degree keep their relative order.
+	 *
+	 * @return the renumbered graph.
+	 */
+	public AbstractCompactGraph<T> relabelByDegree() {
+		if (order == 0) {
+			return this;
+		}
+		int rowsPerNode = (offsets.length - 1) / order;
+		// counting sort on the degrees, highest first
+		int maxDegree = 0;
+		for (int node = 0; node < order; node++) {
+			maxDegree = Math.max(maxDegree, degree(node, rowsPerNode));
+		}
+		int[] start = new int[maxDegree + 2];
+		for (int node = 0; node < order; node++) {
+			start[maxDegree - degree(node, rowsPerNode) + 1]++;
+		}
+		for (int i = 1; i < start.length; i++) {
+			start[i] += start[i - 1];
+		}
+		int[] newNodes = new int[order];
+		for (int node = 0; node < order; node++) {
+			newNodes[node] = start[maxDegree - degree(node, rowsPerNode)]++;
+		}
+		return relabel(newNodes);
+	}
+
+	/**
+	 * Returns a copy of this graph with the nodes renumbered in reverse
+	 * Cuthill-McKee order: a breadth first search from a node of minimal
+	 * degree, visiting neighbours by increasing degree, reversed at the end.
+	 * Neighbouring nodes end up with nearby indices, which keeps the rows used
+	 * together close in memory.
+	 *
+	 * @return the renumbered graph.
+	 */
+	public AbstractCompactGraph<T> relabelByBandwidth() {
+		if (order == 0) {
+			return this;
+		}
+		int rowsPerNode = (offsets.length - 1) / order;
+		int[] byDegree = new int[order];
+		for (int node = 0; node < order; node++) {
+			byDegree[node] = node;
+		}
+		sortByDegree(byDegree, 0, order, rowsPerNode);
+		int[] queue = new int[order];
+		boolean[] visited = new boolean[order];
+		int head = 0;
+		int tail = 0;
+		for (int root : byDegree) {
+			if (visited[root]) {
+				continue;
+			}
+			visited[root] = true;
+			queue[tail++] = root;
+			while (head < tail) {
+				int node = queue[head++];
+				int first = tail;
+				for (int i = offsets[node * rowsPerNode]; i < offsets[(node + 1) * rowsPerNode]; i++) {
+					if (!visited[targets[i]]) {
+						visited[targets[i]] = true;
+						queue[tail++] = targets[i];
+					}
+				}
+				sortByDegree(queue, first, tail, rowsPerNode);
+			}
+		}
+		int[] newNodes = new int[order];
+		for (int i = 0; i < order; i++) {
+			newNodes[queue[i]] = order - 1 - i;
+		}
+		return relabel(newNodes);
+	}
+
+	/**
+	 * Sorts the nodes in the range <code>[from, to)</code> of the given array by
+	 * increasing degree, and by index for equal degrees.
+	 */
+	private void sortByDegree(int[] nodes, int from, int to, int rowsPerNode) {
+		long[] keys = new long[to - from];
+		for (int i = from; i < to; i++) {
+			keys[i - from] = (long) degree(nodes[i], rowsPerNode) << 32 | nodes[i];
+		}
+		Arrays.sort(keys);
+		for (int i = from; i < to; i++) {
+			nodes[i] = (int) keys[i - from];
+		}
+	}
+
+	/**
+	 * Returns a copy of this graph with the nodes renumbered. The rows of every
+	 * node move along with it, and all targets are translated and sorted again.
+	 * Any hub bitsets are rebuilt.
+	 *
+	 * @param newNodes
+	 *            For every current node, its new index. Must be a permutation of
+	 *            <code>0 .. order-1</code>.
+	 * @return the renumbered graph.
+	 */
+	public AbstractCompactGraph<T> relabel(int[] newNodes) {
+		if (newNodes.length != order) {
+			throw new IllegalArgumentException("Expected " + order + " nodes, got " + newNodes.length);
+		}
+		int rowsPerNode = order == 0 ? 0 : (offsets.length - 1) / order;
+		int[] oldNodes = new int[order];
+		Arrays.fill(oldNodes, -1);
+		for (int node = 0; node < order; node++) {
+			if (newNodes[node] < 0 || newNodes[node] >= order || oldNodes[newNodes[node]] >= 0) {
+				throw new IllegalArgumentException("Not a permutation: " + Arrays.toString(newNodes));
+			}
+			oldNodes[newNodes[node]] = node;
+		}
+		int[] newOffsets = new int[offsets.length];
+		int[] newTargets = new int[targets.length];
+		for (int node = 0; node < order; node++) {
+			int oldNode = oldNodes[node];
+			for (int t = 0; t < rowsPerNode; t++) {
+				int row = node * rowsPerNode + t;
+				int oldRow = oldNode * rowsPerNode + t;
+				int index = newOffsets[row];
+				for (int i = offsets[oldRow]; i < offsets[oldRow + 1]; i++) {
+					newTargets[index++] = newNodes[targets[i]];
+				}
+				Arrays.sort(newTargets, newOffsets[row], index);
+				newOffsets[row + 1] = index;
+			}
+		}
+		int[] newOriginalNodes = new int[order];
+		for (int node = 0; node < order; node++) {
+			newOriginalNodes[node] = getOriginalNode(oldNodes[node]);
+		}
+		return derive(newOffsets, newTargets, newOriginalNodes, hubDegree);
+	}
+
+	/**
+	 * Computes the offsets array for the given rows.
+	 *
+	 * @param rows
+	 *            The sorted rows of the graph.
+	 * @return the start of every row, followed by the total number of targets.
+	 */
+	private static int[] offsetsOf(List<? extends Collection<Integer>> rows) {
+		int[] result = new int[rows.size() + 1];
+		for (int i = 0; i < rows.size(); i++) {
+			result[i + 1] = result[i] + rows.get(i).size();
+		}
+		return result;
+	}
+
+	/**
+	 * Copies the given rows into a single targets array.
+	 *
+	 * @param rows
+	 *            The sorted rows of the graph.
+	 * @param offsets
+	 *            The offsets of the rows, as computed by
+	 *            {@link #offsetsOf(List)}.
+	 * @return the rows, back to back.
+	 */
+	private static int[] targetsOf(List<? extends Collection<Integer>> rows, int[] offsets) {
+		int[] result = new int[offsets[rows.size()]];
+		for (int i = 0; i < rows.size(); i++) {
+			int index = offsets[i];
+			for (int node : rows.get(i)) {
+				result[index++] = node;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a compact graph directly from its edges, without a regular graph in
+	 * between. The edges can be added in any order. Edges that the regular graph
+	 * would refuse, like loops, are refused as well, but duplicate edges are only
+	 * left out when the graph is built.
+	 *
+	 * Subclasses store every edge as one or more entries, each a row and a
+	 * target packed in a long, which are sorted into rows at the end.
+	 *
+	 * @param <T>
+	 *            A datatype with which the graph represents its edge types.
+	 */
+	public abstract static class Builder<T extends Comparable<T>> {
+		protected final int order;
+		private long[] entries = new long[1024];
+		private int count = 0;
+		private NodeDictionary nodeNames;
+
+		/**
+		 * Creates a builder for a graph with the given number of nodes.
+		 *
+		 * @param order
+		 *            The number of nodes.
+		 */
+		protected Builder(int order) {
+			this.order = order;
+		}
+
+		/**
+		 * Adds an edge to the graph.
+		 *
+		 * @param node1
+		 *            First node of the edge.
+		 * @param node2
+		 *            Second node of the edge.
+		 * @param edgeType
+		 *            Type of the edge.
+		 * @throws IllegalGraphActionException
+		 *             if a node does not exist, or if the regular graph would
+		 *             not accept the edge for another reason than it being a
+		 *             duplicate.
+		 */
+		public abstract void addEdge(int node1, int node2, T edgeType) throws IllegalGraphActionException;
+
+		/**
+		 * Returns the graph with all edges added so far.
+		 *
+		 * @return the compact graph.
+		 */
+		public abstract AbstractCompactGraph<T> build();
+
+		/**
+		 * Sets the names of the nodes of the graph that will be built.
+		 *
+		 * @param nodeNames
+		 *            The names of the nodes, or <code>null</code> if they have
+		 *            none.
+		 */
+		public void setNodeNames(NodeDictionary nodeNames) {
+			this.nodeNames = nodeNames;
+		}
+
+		/**
+		 * Gives the built graph the node names of this builder.
+		 */
+		protected <G extends AbstractCompactGraph<T>> G named(G graph) {
+			graph.nodeNames = nodeNames;
+			return graph;
+		}
+
+		/**
+		 * Throws an exception if the given node does not exist.
+		 */
+		protected void checkNode(int node) throws IllegalGraphActionException {
+			if (node < 0 || node >= order) {
+				throw new IllegalGraphActionException("Node " + node + " not present");
+			}
+		}
+
+		/**
+		 * Adds the given target to the given row.
+		 */
+		protected void addEntry(int row, int target) {
+			if (count == entries.length) {
+				entries = Arrays.copyOf(entries, count * 2);
+			}
+			entries[count++] = (long) row << 32 | target;
+		}
+
+		/**
+		 * Returns the number of entries, without duplicates once
+		 * {@link #sortEntries(int)} has been called.
+		 */
+		protected int entryCount() {
+			return count;
+		}
+
+		/**
+		 * Sorts the entries by row and then by target and removes the duplicates.
+		 *
+		 * @param rows
+		 *            The number of rows.
+		 * @return the start of every row, followed by the number of entries.
+		 */
+		protected int[] sortEntries(int rows) {
+			Arrays.sort(entries, 0, count);
+			int[] offsets = new int[rows + 1];
+			int unique = 0;
+			for (int i = 0; i < count; i++) {
+				if (unique == 0 || entries[i] != entries[unique - 1]) {
+					entries[unique++] = entries[i];
+					offsets[(int) (entries[i] >>> 32) + 1]++;
+				}
+			}
+			count = unique;
+			for (int row = 0; row < rows; row++) {
+				offsets[row + 1] += offsets[row];
+			}
+			return offsets;
+		}
+
+		/**
+		 * Returns the targets of the sorted entries, back to back.
+		 *
+		 * @see #sortEntries(int)
+		 */
+		protected int[] targets() {
+			int[] result = new int[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = (int) entries[i];
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns a copy of the given node names, so that a compact graph does not
+	 * share them with the graph it was made from.
+	 *
+	 * @param nodeNames
+	 *            The node names, or <code>null</code>.
+	 * @return a copy of the node names, or <code>null</code>.
+	 */
+	protected static NodeDictionary copyOf(NodeDictionary nodeNames) {
+		return nodeNames == null ? null : new NodeDictionary(nodeNames);
+	}
+
+	@Override
+	public void setNodeNames(NodeDictionary nodeNames) {
+		throw new UnsupportedOperationException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void addNode() {
+		throw new UnsupportedOperationException("Compact graphs can not be modified");
+	}
+
+	@Override
+	protected void addNodeInternal() {
+		throw new UnsupportedOperationException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void removeNode(int node) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	protected void removeNodeInternal(int node) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void addEdge(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	protected void addEdgeInternal(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdge(int node1, int node2) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	protected void removeEdgeInternal(int node1, int node2) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdge(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdgeInternal(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Compact graphs can not be modified");
+	}
+}
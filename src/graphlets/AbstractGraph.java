@@ -22,6 +22,7 @@ import graphletgeneration.AbstractGraphletFactory;
 public abstract class AbstractGraph<T extends Comparable<T>> {
 	protected int order;
 	protected int size;
+	protected NodeDictionary nodeNames;
 
 	/**
 	 * Adds a node to the graph.
@@ -288,6 +289,152 @@ public abstract class AbstractGraph<T extends Comparable<T>> {
 		}
 	}
 
+	/**
+	 * Returns <code>true</code> if there is an edge of the given type from the
+	 * first node to the second node. This is equivalent to
+	 * <code>getNeighbours(node1, edgeType).contains(node2)</code>, but graphs can
+	 * answer it without building the neighbour set.
+	 * 
+	 * @param node1
+	 *            the starting node of the edge.
+	 * @param node2
+	 *            the ending node of the edge.
+	 * @param edgeType
+	 *            the edge type.
+	 * @return <code>true</code> if the edge is present.
+	 */
+	public boolean hasEdge(int node1, int node2, T edgeType) {
+		SortedSet<Integer> neighbours = getNeighbours(node1, edgeType);
+		return neighbours != null && neighbours.contains(node2);
+	}
+
+	/**
+	 * Returns the indices of the nodes to which there is an edge from the given
+	 * node, of the given type, as a primitive view. Compact graphs return a view
+	 * on their own storage; other graphs return a copy.
+	 * 
+	 * @see #getNeighbours(int, Comparable)
+	 * @param node
+	 *            the starting node for the edges.
+	 * @param edgeType
+	 *            the edge type.
+	 * @return the neighbours of the given node, in ascending order.
+	 */
+	public IntSlice getNeighbourSlice(int node, T edgeType) {
+		return IntSlice.of(getNeighbours(node, edgeType));
+	}
+
+	/**
+	 * Returns the indices of the nodes from which there is an edge to the given
+	 * node, of the given type, as a primitive view.
+	 * 
+	 * @see #getInvertedNeighbours(int, Comparable)
+	 * @param node
+	 *            the ending node for the edges.
+	 * @param edgeType
+	 *            the edge type.
+	 * @return the inverted neighbours of the given node, in ascending order.
+	 */
+	public IntSlice getInvertedNeighbourSlice(int node, T edgeType) {
+		return IntSlice.of(getInvertedNeighbours(node, edgeType));
+	}
+
+	/**
+	 * Returns the indices of the nodes that are connected to the given node by the
+	 * given edge types, as a primitive view. Unlike
+	 * {@link #getNeighbours(int, Collection)}, no boxed sets are built: the
+	 * neighbours of the separate edge types are intersected directly.
+	 * 
+	 * @param node
+	 *            The node whose neighbours need to be returned.
+	 * @param edgeTypes
+	 *            The edge types from the given node that need to be present.
+	 * @return the neighbours of the given node, in ascending order.
+	 */
+	public IntSlice getNeighbourSlice(int node, Collection<T> edgeTypes) {
+		Iterator<T> it = edgeTypes.iterator();
+		if (!it.hasNext()) {
+			return IntSlice.EMPTY;
+		}
+		IntSlice neighbours = getNeighbourSlice(node, it.next());
+		while (it.hasNext() && !neighbours.isEmpty()) {
+			neighbours = neighbours.intersection(getNeighbourSlice(node, it.next()));
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Returns the index the given node had when the graph was loaded. This only
+	 * differs from the node itself if the graph has been renumbered.
+	 * 
+	 * @param node
+	 *            the current index of the node.
+	 * @return the original index of the node.
+	 */
+	public int getOriginalNode(int node) {
+		return node;
+	}
+
+	/**
+	 * Returns the current index of the node that had the given index when the
+	 * graph was loaded.
+	 * 
+	 * @see #getOriginalNode(int)
+	 * @param originalNode
+	 *            the original index of the node.
+	 * @return the current index of the node.
+	 */
+	public int getNode(int originalNode) {
+		return originalNode;
+	}
+
+	/**
+	 * Returns the names the nodes had in the file the graph was read from, indexed
+	 * by original node index, or <code>null</code> if the nodes have no names.
+	 * 
+	 * @see #getOriginalNode(int)
+	 * @return the names of the nodes, or <code>null</code>.
+	 */
+	public NodeDictionary getNodeNames() {
+		return nodeNames;
+	}
+
+	/**
+	 * Sets the names of the nodes, indexed by original node index.
+	 * 
+	 * @param nodeNames
+	 *            the names of the nodes, or <code>null</code> if they have none.
+	 */
+	public void setNodeNames(NodeDictionary nodeNames) {
+		this.nodeNames = nodeNames;
+	}
+
+	/**
+	 * Returns a read-only, compact copy of this graph, which can safely be shared
+	 * between threads. Counting never modifies the graph, so the walkers work on
+	 * frozen graphs. Graph types with their own compact implementation override
+	 * this method; the default is a generic {@link FrozenGraph}.
+	 * 
+	 * @return a frozen version of this graph.
+	 */
+	public AbstractGraph<T> freeze() {
+		return new FrozenGraph<>(this);
+	}
+
+	/**
+	 * Returns a builder for a compact graph of this type with the given number
+	 * of nodes, taking the edge types known to this graph. Graph types with
+	 * their own compact implementation override this method; the default is
+	 * <code>null</code>.
+	 *
+	 * @param order
+	 *            The number of nodes of the graph to be built.
+	 * @return a builder, or <code>null</code> if this graph type has none.
+	 */
+	public AbstractCompactGraph.Builder<T> builder(int order) {
+		return null;
+	}
+
 	/**
 	 * Returns the graph's order, i.e. its number of nodes.
 	 * 
@@ -8,7 +8,6 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import graphletgeneration.Permutator;
 import graphlets.diGraphlet.DiGraphlet;
 
 /**
@@ -79,8 +78,6 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 	 * Swaps the indices of the two given nodes. All edges to or from a, go to or
 	 * from b after the swap and vice versa.
 	 * </p>
-	 * <p>
-	 * Used in the permutation of the nodes during symmetry calculation.
 	 * 
 	 * @param node1
 	 *            The first node to be swapped.
@@ -90,7 +87,7 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 	public abstract void swap(int node1, int node2);
 
 	public List<Integer> getCanonicalAutomorphism() {
-		if (canonicalAutomorphism == null) {
+		if (!ready) {
 			permute();
 		}
 		return canonicalAutomorphism;
@@ -106,6 +103,27 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 	 */
 	public abstract String representation();
 
+	/**
+	 * Returns the character of the representation that stands for the edges from
+	 * the first to the second node, '0' if there are none.
+	 * 
+	 * @param node1
+	 *            The first node.
+	 * @param node2
+	 *            The second node, different from the first.
+	 * @return the character for the edges between the nodes.
+	 */
+	protected abstract char getEdgeCharacter(int node1, int node2);
+
+	/**
+	 * Returns <code>true</code> if the representation lists the edges from every
+	 * node to all other nodes, row by row, and <code>false</code> if it only
+	 * lists the edges from every node to the nodes before it.
+	 * 
+	 * @return <code>true</code> if both directions of an edge are represented.
+	 */
+	protected abstract boolean isDirected();
+
 	/**
 	 * Returns the graphlet's canonical representation, i.e. the lowest possible
 	 * representation of this graphlet.
@@ -207,51 +225,50 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 	}
 
 	/**
-	 * Permute the graphlet's nodes, calculating its automorphisms, orbits and
-	 * canonical form.
+	 * Calculates the graphlet's automorphisms, orbits and canonical form. The
+	 * results are those of permuting the nodes in Steinhaus-Johnson-Trotter
+	 * order. They are taken from the {@link CanonicalCache} if this
+	 * representation was permuted before, looked up in the installed
+	 * {@link CanonicalTable} if it holds this graphlet, and found by a
+	 * {@link CanonicalLabeller} otherwise.
 	 * 
 	 * @return <code>true</code> if this graphlet is canonical.
 	 */
 	public boolean permute() {
-		automorphisms = new ArrayList<>();
-		canonical = this.representation();
-		boolean result = true;
-		orbits = new ArrayList<>();
-		List<Integer> current = new ArrayList<Integer>();
-		for (int i = 0; i < order; i++) {
-			orbits.add(new TreeSet<>());
-			orbits.get(i).add(i);
-			current.add(i);
-		}
-		canonicalAutomorphism = new ArrayList<>(current);
-		automorphisms.add(new ArrayList<>(current));
-		int o = (isOrbitRep ? 1 : 0);
-		if (order - o > 1) {
-			Permutator p = new Permutator(order - o);
-			String rep = canonical;
-			int index = p.next();
-			while (index >= 0) {
-				swap(index + o, index + o + 1);
-				int reserve = current.get(index + o);
-				current.set(index + o, current.get(index + o + 1));
-				current.set(index + o + 1, reserve);
-				String s = this.representation();
-				if (s.equals(rep)) {
-					for (int i = 0; i < order; i++) {
-						orbits.get(i).add(current.get(i));
-					}
-					automorphisms.add(new ArrayList<>(current));
-				}
-				if (new CanonicalComparator().compare(canonical, s) > 0) {
-					canonical = s;
-					result = false;
-					canonicalAutomorphism = new ArrayList<>(current);
+		String representation = representation();
+		CanonicalCache cache = CanonicalCache.getDefault();
+		CanonicalCache.Entry entry = cache.get(this, representation);
+		if (entry == null) {
+			boolean result;
+			CanonicalTable table = CanonicalTable.getInstalled(this);
+			int index = table == null ? -1 : table.indexOf(this);
+			if (index >= 0) {
+				result = table.permute(this, index);
+			} else {
+				CanonicalLabeller labeller = new CanonicalLabeller(this);
+				automorphisms = labeller.getAutomorphisms();
+				canonical = labeller.getCanonical();
+				canonicalAutomorphism = labeller.getCanonicalAutomorphism();
+				result = labeller.isCanonical();
+			}
+			orbits = new ArrayList<>();
+			for (int i = 0; i < order; i++) {
+				orbits.add(new TreeSet<>());
+				for (List<Integer> automorphism : automorphisms) {
+					orbits.get(i).add(automorphism.get(i));
 				}
-				index = p.next();
 			}
-			swap(o, o + 1);
+			entry = new CanonicalCache.Entry(canonical, result, automorphisms, canonicalAutomorphism, orbits,
+					automorphisms.size() == 1 ? orbits : cosetReps(automorphisms, order));
+			cache.put(this, representation, entry);
 		}
-		return result;
+		canonical = entry.canonical;
+		automorphisms = entry.automorphisms;
+		canonicalAutomorphism = entry.canonicalAutomorphism;
+		orbits = entry.orbits;
+		cosetreps = entry.cosetReps;
+		ready = true;
+		return entry.isCanonical;
 	}
 
 	/**
@@ -323,24 +340,28 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 	public List<SortedSet<Integer>> getCosetReps() {
 		if (!ready) {
 			permute();
-			cosetreps = null;}
-		if (getSymmetry() == 1) {
-			return orbits;
-		} else if (cosetreps == null) {
-			List<List<Integer>> automorphismCopy = new ArrayList<>(automorphisms);
-			cosetreps = new ArrayList<>();
-			for (int i = 0; i < order; i++) {
-				cosetreps.add(new TreeSet<>());
-				for (int j = automorphismCopy.size()-1; j >= 0; j--) {
-					cosetreps.get(i).add(automorphismCopy.get(j).get(i));
-					if (automorphismCopy.get(j).get(i) != i) {
-						automorphismCopy.remove(j);
-//						j--;
-					}
+		}
+		return cosetreps;
+	}
+
+	/**
+	 * Calculates the coset representatives of the given automorphisms: for
+	 * every node, the nodes it is mapped on by the automorphisms that fix all
+	 * nodes before it.
+	 */
+	private static List<SortedSet<Integer>> cosetReps(List<List<Integer>> automorphisms, int order) {
+		List<List<Integer>> automorphismCopy = new ArrayList<>(automorphisms);
+		List<SortedSet<Integer>> result = new ArrayList<>();
+		for (int i = 0; i < order; i++) {
+			result.add(new TreeSet<>());
+			for (int j = automorphismCopy.size() - 1; j >= 0; j--) {
+				result.get(i).add(automorphismCopy.get(j).get(i));
+				if (automorphismCopy.get(j).get(i) != i) {
+					automorphismCopy.remove(j);
 				}
 			}
 		}
-		return cosetreps;
+		return result;
 	}
 
 	/**
@@ -399,4 +420,13 @@ public abstract class AbstractGraphlet<T extends Comparable<T>> extends Abstract
 		return builder;
 	}
 
+	/**
+	 * Graphlets are only walked while generating equations, and are far too
+	 * small to benefit from a compact copy, so they are not frozen.
+	 */
+	@Override
+	public AbstractGraph<T> freeze() {
+		return this;
+	}
+
 }
@@ -0,0 +1,213 @@
+package graphlets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide memo of the results of {@link AbstractGraphlet#permute()}, keyed
+ * by the graphlet type, the orbit setting and the representation. Generating
+ * trees and equations copies the same graphlets over and over, and every copy
+ * would otherwise be labelled again.
+ *
+ * The cache holds at most a fixed number of entries, given by the
+ * <code>seadragon.canonicalcache</code> system property (65536 by default, 0
+ * turns the cache off). It is split in segments that are locked separately,
+ * each evicting its least recently used entry when it is full. The results in
+ * the entries can not be modified, so they are shared by all graphlets with
+ * the same representation.
+ */
+public class CanonicalCache {
+
+	private static final int SEGMENTS = 16;
+	private static final CanonicalCache DEFAULT = new CanonicalCache(
+			Integer.getInteger("seadragon.canonicalcache", 1 << 16));
+
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * The results of permuting one representation.
+	 */
+	static class Entry {
+		final String canonical;
+		final boolean isCanonical;
+		final List<List<Integer>> automorphisms;
+		final List<Integer> canonicalAutomorphism;
+		final List<SortedSet<Integer>> orbits;
+		final List<SortedSet<Integer>> cosetReps;
+
+		Entry(String canonical, boolean isCanonical, List<List<Integer>> automorphisms,
+				List<Integer> canonicalAutomorphism, List<SortedSet<Integer>> orbits,
+				List<SortedSet<Integer>> cosetReps) {
+			this.canonical = canonical;
+			this.isCanonical = isCanonical;
+			this.automorphisms = unmodifiableLists(automorphisms);
+			this.canonicalAutomorphism = Collections.unmodifiableList(canonicalAutomorphism);
+			this.orbits = unmodifiableSets(orbits);
+			this.cosetReps = cosetReps == orbits ? this.orbits : unmodifiableSets(cosetReps);
+		}
+
+		private static List<List<Integer>> unmodifiableLists(List<List<Integer>> lists) {
+			List<List<Integer>> result = new ArrayList<>(lists.size());
+			for (List<Integer> list : lists) {
+				result.add(Collections.unmodifiableList(list));
+			}
+			return Collections.unmodifiableList(result);
+		}
+
+		private static List<SortedSet<Integer>> unmodifiableSets(List<SortedSet<Integer>> sets) {
+			List<SortedSet<Integer>> result = new ArrayList<>(sets.size());
+			for (SortedSet<Integer> set : sets) {
+				result.add(Collections.unmodifiableSortedSet(set));
+			}
+			return Collections.unmodifiableList(result);
+		}
+	}
+
+	/**
+	 * Part of the cache with a lock of its own, in least recently used order.
+	 */
+	private static class Segment extends LinkedHashMap<String, CanonicalCache.Entry> {
+
+		private static final long serialVersionUID = 2093547217635328431L;
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CanonicalCache.Entry> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	/**
+	 * Creates a cache that holds at most about the given number of entries.
+	 *
+	 * @param capacity
+	 *            The maximal number of entries, or 0 to cache nothing.
+	 */
+	public CanonicalCache(int capacity) {
+		if (capacity <= 0) {
+			segments = new Segment[0];
+		} else {
+			segments = new Segment[SEGMENTS];
+			for (int i = 0; i < SEGMENTS; i++) {
+				segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+			}
+		}
+	}
+
+	/**
+	 * Returns the cache that is used by all graphlets.
+	 *
+	 * @return the process-wide cache.
+	 */
+	public static CanonicalCache getDefault() {
+		return DEFAULT;
+	}
+
+	private static String key(AbstractGraphlet<?> graphlet, String representation) {
+		return graphlet.getClass().getName() + (graphlet.isOrbitRep() ? "+" : "-") + representation;
+	}
+
+	private Segment segment(String key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Returns the cached results for the given graphlet, or <code>null</code>
+	 * if there are none.
+	 */
+	Entry get(AbstractGraphlet<?> graphlet, String representation) {
+		if (segments.length == 0) {
+			return null;
+		}
+		String key = key(graphlet, representation);
+		Segment segment = segment(key);
+		Entry result;
+		synchronized (segment) {
+			result = segment.get(key);
+		}
+		if (result == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the results for the given graphlet.
+	 */
+	void put(AbstractGraphlet<?> graphlet, String representation, Entry entry) {
+		if (segments.length == 0) {
+			return;
+		}
+		String key = key(graphlet, representation);
+		Segment segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, entry);
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found cached results.
+	 *
+	 * @return the number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that found no cached results.
+	 *
+	 * @return the number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return the size of the cache.
+	 */
+	public int size() {
+		int result = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				result += segment.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all entries and resets the counters.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return size() + " graphlets cached, " + getHits() + " hits, " + getMisses() + " misses";
+	}
+}
@@ -0,0 +1,583 @@
+package graphlets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculates the automorphisms and canonical form of a graphlet by
+ * individualisation and refinement, instead of trying every permutation of its
+ * nodes.
+ *
+ * The automorphisms are found as in nauty: the nodes are split into cells by
+ * colour refinement, a node of the first cell with more than one node is
+ * individualised and the cells are refined again, until every node has a cell
+ * of its own. A leaf that can be mapped on the first one gives an
+ * automorphism. Branches whose refinement differs from the first path at the
+ * same depth are pruned, and so are nodes that an automorphism found earlier
+ * maps on the node of the first path; the automorphisms that are found
+ * generate all others.
+ *
+ * The canonical form stays the lowest representation according to the
+ * {@link CanonicalComparator}. It is found by a branch and bound search that
+ * places the nodes one position at a time, pruning a branch as soon as the
+ * lowest representation it can still reach is higher than the best one found
+ * so far, and trying only one node of every orbit of the automorphisms that
+ * fix the nodes placed so far.
+ *
+ * Permutations are given like the ones of the
+ * {@link graphletgeneration.Permutator}: the node at every position. Where
+ * several permutations qualify, the one that comes first in its
+ * Steinhaus-Johnson-Trotter order is taken, so the results are exactly those
+ * of permuting the nodes in that order.
+ */
+class CanonicalLabeller {
+
+	private final int order;
+	private final int fixed;
+	private final boolean directed;
+	private final char[][] characters;
+	private final int[][] values;
+	private final int[][] pairs;
+
+	private final List<List<Integer>> traces = new ArrayList<>();
+	private int[] firstLeaf;
+	private final List<int[]> automorphisms = new ArrayList<>();
+
+	private int[] best;
+	private int[] bestLabelling;
+
+	/**
+	 * Calculates the automorphisms and canonical form of the given graphlet.
+	 *
+	 * @param graphlet
+	 *            The graphlet to be labelled.
+	 */
+	CanonicalLabeller(AbstractGraphlet<?> graphlet) {
+		order = graphlet.getOrder();
+		fixed = graphlet.isOrbitRep() && order > 0 ? 1 : 0;
+		directed = graphlet.isDirected();
+		characters = new char[order][order];
+		values = new int[order][order];
+		pairs = new int[order][order];
+		for (int i = 0; i < order; i++) {
+			for (int j = 0; j < order; j++) {
+				if (i != j) {
+					characters[i][j] = graphlet.getEdgeCharacter(i, j);
+					values[i][j] = characters[i][j] == '0' ? 0 : characters[i][j];
+				}
+			}
+		}
+		for (int i = 0; i < order; i++) {
+			for (int j = 0; j < order; j++) {
+				pairs[i][j] = (values[i][j] << 16) | values[j][i];
+			}
+		}
+		findAutomorphisms();
+		findCanonical();
+	}
+
+	/**
+	 * Returns the canonical representation.
+	 *
+	 * @return the lowest representation of the graphlet.
+	 */
+	String getCanonical() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < order; i++) {
+			for (int j = 0; j < (directed ? order : i); j++) {
+				if (i != j) {
+					builder.append(characters[bestLabelling[i]][bestLabelling[j]]);
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns <code>true</code> if the graphlet's own representation is the
+	 * canonical one.
+	 *
+	 * @return <code>true</code> if the graphlet is canonical.
+	 */
+	boolean isCanonical() {
+		int[] identity = new int[order];
+		for (int i = 0; i < order; i++) {
+			identity[i] = i;
+		}
+		return Arrays.equals(best, bound(identity, order));
+	}
+
+	/**
+	 * Returns the automorphisms, in the order in which permuting the nodes finds
+	 * them, starting with the identity.
+	 *
+	 * @return the automorphisms of the graphlet.
+	 */
+	List<List<Integer>> getAutomorphisms() {
+		final long[] ranks = new long[automorphisms.size()];
+		Integer[] sorted = new Integer[automorphisms.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			ranks[i] = rank(automorphisms.get(i));
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(ranks[a], ranks[b]);
+			}
+		});
+		List<List<Integer>> result = new ArrayList<>(sorted.length);
+		for (int i : sorted) {
+			result.add(toList(automorphisms.get(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first permutation that turns the graphlet into its canonical
+	 * form.
+	 *
+	 * @return the canonical automorphism of the graphlet.
+	 */
+	List<Integer> getCanonicalAutomorphism() {
+		int[] result = null;
+		long lowest = Long.MAX_VALUE;
+		for (int[] automorphism : automorphisms) {
+			int[] labelling = new int[order];
+			for (int i = 0; i < order; i++) {
+				labelling[i] = automorphism[bestLabelling[i]];
+			}
+			long rank = rank(labelling);
+			if (rank < lowest) {
+				lowest = rank;
+				result = labelling;
+			}
+		}
+		return toList(result);
+	}
+
+	private static List<Integer> toList(int[] permutation) {
+		List<Integer> result = new ArrayList<>(permutation.length);
+		for (int i : permutation) {
+			result.add(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the position of the given permutation of the nodes that are not
+	 * fixed in the Steinhaus-Johnson-Trotter order of the Permutator, which
+	 * starts with the identity.
+	 */
+	private long rank(int[] permutation) {
+		long result = 0;
+		for (int value = fixed + 1; value < order; value++) {
+			int position = 1;
+			for (int i = fixed; permutation[i] != value; i++) {
+				if (permutation[i] < value) {
+					position++;
+				}
+			}
+			int j = value - fixed + 1;
+			result = result % 2 == 0 ? j * result + j - position : j * result + position - 1;
+		}
+		return result;
+	}
+
+	/*
+	 * Automorphisms.
+	 */
+
+	/**
+	 * Follows the first path down to a leaf, then looks for generators of the
+	 * automorphisms from the deepest level of the path up: at every level, the
+	 * nodes of the cell that was split are tried, except the ones that the
+	 * generators found so far already map on the node of the first path.
+	 * These generators fix the nodes of the path above that level, so the ones
+	 * found together generate every automorphism.
+	 */
+	private void findAutomorphisms() {
+		List<int[]> cells = new ArrayList<>();
+		if (fixed == 1) {
+			cells.add(new int[] { 0 });
+		}
+		int[] rest = new int[order - fixed];
+		for (int i = 0; i < rest.length; i++) {
+			rest[i] = i + fixed;
+		}
+		if (rest.length > 0) {
+			cells.add(rest);
+		}
+		List<Integer> trace = new ArrayList<>();
+		cells = refine(cells, trace);
+		traces.add(trace);
+		List<List<int[]>> path = new ArrayList<>();
+		int target;
+		while ((target = target(cells)) >= 0) {
+			path.add(cells);
+			trace = new ArrayList<>();
+			cells = refine(individualise(cells, target, cells.get(target)[0]), trace);
+			traces.add(trace);
+		}
+		firstLeaf = leaf(cells);
+		List<int[]> generators = new ArrayList<>();
+		List<List<int[]>> transversals = new ArrayList<>();
+		for (int depth = path.size() - 1; depth >= 0; depth--) {
+			List<int[]> partition = path.get(depth);
+			target = target(partition);
+			int[] cell = partition.get(target);
+			for (int node : cell) {
+				if (transversal(cell[0], generators)[node] != null) {
+					continue;
+				}
+				trace = new ArrayList<>();
+				List<int[]> child = refine(individualise(partition, target, node), trace);
+				int[] automorphism = trace.equals(traces.get(depth + 1)) ? search(child, depth + 1) : null;
+				if (automorphism != null) {
+					generators.add(automorphism);
+				}
+			}
+			List<int[]> transversal = new ArrayList<>();
+			for (int[] automorphism : transversal(cell[0], generators)) {
+				if (automorphism != null) {
+					transversal.add(automorphism);
+				}
+			}
+			transversals.add(0, transversal);
+		}
+		int[] identity = new int[order];
+		for (int i = 0; i < order; i++) {
+			identity[i] = i;
+		}
+		multiply(identity, transversals, 0);
+	}
+
+	/**
+	 * Returns, for every node on which the given automorphisms map the given
+	 * node, a product of them that does so, and <code>null</code> for the other
+	 * nodes.
+	 */
+	private int[][] transversal(int node, List<int[]> generators) {
+		int[][] result = new int[order][];
+		result[node] = new int[order];
+		for (int i = 0; i < order; i++) {
+			result[node][i] = i;
+		}
+		List<Integer> queue = new ArrayList<>();
+		queue.add(node);
+		for (int i = 0; i < queue.size(); i++) {
+			int[] automorphism = result[queue.get(i)];
+			for (int[] generator : generators) {
+				int image = generator[queue.get(i)];
+				if (result[image] == null) {
+					result[image] = new int[order];
+					for (int j = 0; j < order; j++) {
+						result[image][j] = generator[automorphism[j]];
+					}
+					queue.add(image);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the product of the given automorphism with every combination of
+	 * automorphisms from the transversals from the given level on. Every
+	 * automorphism is such a product in exactly one way, as the automorphisms of
+	 * every transversal map the node of the first path on a different node and
+	 * those of the next levels fix it.
+	 */
+	private void multiply(int[] automorphism, List<List<int[]>> transversals, int level) {
+		if (level == transversals.size()) {
+			automorphisms.add(automorphism);
+			return;
+		}
+		for (int[] factor : transversals.get(level)) {
+			int[] product = new int[order];
+			for (int i = 0; i < order; i++) {
+				product[i] = automorphism[factor[i]];
+			}
+			multiply(product, transversals, level + 1);
+		}
+	}
+
+	/**
+	 * Returns the index of the first cell with more than one node, or -1 if
+	 * every node has a cell of its own.
+	 */
+	private static int target(List<int[]> cells) {
+		for (int i = 0; i < cells.size(); i++) {
+			if (cells.get(i).length > 1) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first automorphism that maps the first leaf on a leaf below
+	 * the given cells, or <code>null</code> if there is none. Branches whose
+	 * refinement differs from the first path are not searched.
+	 */
+	private int[] search(List<int[]> cells, int depth) {
+		int target = target(cells);
+		if (target < 0) {
+			int[] leaf = leaf(cells);
+			int[] automorphism = new int[order];
+			for (int i = 0; i < order; i++) {
+				automorphism[firstLeaf[i]] = leaf[i];
+			}
+			for (int i = 0; i < order; i++) {
+				for (int j = 0; j < order; j++) {
+					if (values[i][j] != values[automorphism[i]][automorphism[j]]) {
+						return null;
+					}
+				}
+			}
+			return automorphism;
+		}
+		for (int node : cells.get(target)) {
+			List<Integer> trace = new ArrayList<>();
+			List<int[]> child = refine(individualise(cells, target, node), trace);
+			if (depth + 1 < traces.size() && trace.equals(traces.get(depth + 1))) {
+				int[] automorphism = search(child, depth + 1);
+				if (automorphism != null) {
+					return automorphism;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static List<int[]> individualise(List<int[]> cells, int target, int node) {
+		List<int[]> result = new ArrayList<>(cells.size() + 1);
+		for (int i = 0; i < cells.size(); i++) {
+			if (i == target) {
+				int[] cell = cells.get(i);
+				int[] rest = new int[cell.length - 1];
+				int k = 0;
+				for (int other : cell) {
+					if (other != node) {
+						rest[k++] = other;
+					}
+				}
+				result.add(new int[] { node });
+				result.add(rest);
+			} else {
+				result.add(cells.get(i));
+			}
+		}
+		return result;
+	}
+
+	private int[] leaf(List<int[]> cells) {
+		int[] result = new int[order];
+		for (int i = 0; i < order; i++) {
+			result[i] = cells.get(i)[0];
+		}
+		return result;
+	}
+
+	/**
+	 * Splits the cells by the edges of their nodes to every cell, until all
+	 * nodes of a cell have the same edges to every cell. The new cells are
+	 * ordered by these edges, so that the result does not depend on the node
+	 * numbers. The sizes and edges of the final cells are added to the trace.
+	 */
+	private List<int[]> refine(List<int[]> cells, List<Integer> trace) {
+		boolean changed = true;
+		final int[][] signatures = new int[order][];
+		Comparator<Integer> comparator = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return compareArrays(signatures[a], signatures[b]);
+			}
+		};
+		while (changed) {
+			changed = false;
+			for (int node = 0; node < order; node++) {
+				signatures[node] = signature(node, cells);
+			}
+			List<int[]> next = new ArrayList<>(cells.size());
+			for (int[] cell : cells) {
+				if (cell.length == 1) {
+					next.add(cell);
+					continue;
+				}
+				Integer[] sorted = new Integer[cell.length];
+				for (int i = 0; i < cell.length; i++) {
+					sorted[i] = cell[i];
+				}
+				Arrays.sort(sorted, comparator);
+				int start = 0;
+				for (int i = 1; i <= sorted.length; i++) {
+					if (i == sorted.length || comparator.compare(sorted[start], sorted[i]) != 0) {
+						int[] part = new int[i - start];
+						for (int k = start; k < i; k++) {
+							part[k - start] = sorted[k];
+						}
+						next.add(part);
+						start = i;
+					}
+				}
+			}
+			changed = next.size() != cells.size();
+			cells = next;
+		}
+		for (int[] cell : cells) {
+			trace.add(cell.length);
+			for (int value : signatures[cell[0]]) {
+				trace.add(value);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Lists the edges of the given node to every cell, sorted within each cell.
+	 */
+	private int[] signature(int node, List<int[]> cells) {
+		int[] result = new int[order];
+		int k = 0;
+		for (int[] cell : cells) {
+			int start = k;
+			for (int other : cell) {
+				result[k++] = other == node ? -1 : pairs[node][other];
+			}
+			Arrays.sort(result, start, k);
+		}
+		return result;
+	}
+
+	private static int compareArrays(int[] a, int[] b) {
+		for (int i = 0; i < a.length && i < b.length; i++) {
+			if (a[i] != b[i]) {
+				return a[i] < b[i] ? -1 : 1;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/*
+	 * Canonical form.
+	 */
+
+	private void findCanonical() {
+		int[] labelling = new int[order];
+		boolean[] used = new boolean[order];
+		if (fixed == 1) {
+			used[0] = true;
+		}
+		label(labelling, used, fixed, automorphisms);
+	}
+
+	/**
+	 * Tries every node that can still be placed at the given position, lowest
+	 * bound first, skipping nodes that an automorphism fixing the previous
+	 * positions maps on a node that is tried already.
+	 */
+	private void label(int[] labelling, boolean[] used, int assigned, List<int[]> stabiliser) {
+		if (assigned == order) {
+			int[] representation = bound(labelling, order);
+			if (best == null || compareArrays(representation, best) < 0) {
+				best = representation;
+				bestLabelling = labelling.clone();
+			}
+			return;
+		}
+		List<Integer> candidates = new ArrayList<>();
+		final int[][] bounds = new int[order][];
+		for (int node = 0; node < order; node++) {
+			if (used[node] || !isLowestInOrbit(node, stabiliser)) {
+				continue;
+			}
+			labelling[assigned] = node;
+			used[node] = true;
+			bounds[node] = bound(labelling, used, assigned + 1);
+			used[node] = false;
+			candidates.add(node);
+		}
+		Collections.sort(candidates, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return compareArrays(bounds[a], bounds[b]);
+			}
+		});
+		for (int node : candidates) {
+			if (best != null && comparePrefix(bounds[node], best) > 0) {
+				continue;
+			}
+			labelling[assigned] = node;
+			used[node] = true;
+			List<int[]> next = new ArrayList<>();
+			for (int[] automorphism : stabiliser) {
+				if (automorphism[node] == node) {
+					next.add(automorphism);
+				}
+			}
+			label(labelling, used, assigned + 1, next);
+			used[node] = false;
+		}
+	}
+
+	private static boolean isLowestInOrbit(int node, List<int[]> group) {
+		for (int[] automorphism : group) {
+			if (automorphism[node] < node) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int comparePrefix(int[] prefix, int[] full) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (prefix[i] != full[i]) {
+				return prefix[i] < full[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the representation of a complete labelling as values.
+	 */
+	private int[] bound(int[] labelling, int assigned) {
+		return bound(labelling, null, assigned);
+	}
+
+	/**
+	 * Returns the lowest values the rows of the given positions can take. Edges
+	 * to positions that are not assigned yet are sorted, since the lowest rows
+	 * place the lowest edges first.
+	 */
+	private int[] bound(int[] labelling, boolean[] used, int assigned) {
+		int[] result = new int[directed ? assigned * (order - 1) : assigned * (assigned - 1) / 2];
+		int k = 0;
+		for (int i = 0; i < assigned; i++) {
+			int node = labelling[i];
+			if (!directed) {
+				for (int j = 0; j < i; j++) {
+					result[k++] = values[node][labelling[j]];
+				}
+				continue;
+			}
+			for (int j = 0; j < assigned; j++) {
+				if (j != i) {
+					result[k++] = values[node][labelling[j]];
+				}
+			}
+			int start = k;
+			for (int other = 0; other < order && assigned < order; other++) {
+				if (!used[other]) {
+					result[k++] = values[node][other];
+				}
+			}
+			Arrays.sort(result, start, k);
+		}
+		return result;
+	}
+}
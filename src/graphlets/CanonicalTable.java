@@ -0,0 +1,309 @@
+package graphlets;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import graphletgeneration.AbstractGraphletFactory;
+
+/**
+ * Table with the canonical form, automorphisms and canonical automorphism of
+ * every labelled graphlet of one type, for the orders that have at most
+ * {@link #MAX_SIZE} representations: order 5 for simple graphlets and order 4
+ * for directed graphlets or graphlets with up to 3 colours. Once a table is
+ * installed, {@link AbstractGraphlet#permute()} looks these graphlets up
+ * instead of labelling them.
+ *
+ * Graphlets are looked up by the index of their representation, read as a
+ * number in the base of the factory's alphabet. The canonical forms are
+ * stored once each; the automorphisms are stored as bytes, in the order in
+ * which permute() lists them.
+ */
+public class CanonicalTable {
+
+	/**
+	 * The maximal number of representations of an order in the table.
+	 */
+	public static final int MAX_SIZE = 1 << 12;
+
+	private static final int MAGIC = 0x53444354; // "SDCT"
+	private static final int VERSION = 1;
+	private static final Map<String, CanonicalTable> TABLES = new ConcurrentHashMap<>();
+
+	private final String type;
+	private final boolean isOrbitRep;
+	private final char[] alphabet;
+	private final int[] codes = new int[128];
+	private final List<Level> levels = new ArrayList<>();
+
+	/**
+	 * The table entries of the graphlets of one order.
+	 */
+	private static class Level {
+		private final int order;
+		private final int length;
+		private String[] canonicals;
+		private int[] canonicalIndices;
+		private int[] canonicalIds;
+		private byte[] canonicalAutomorphisms;
+		private int[] automorphismStarts;
+		private byte[] automorphisms;
+
+		private Level(int order, int length) {
+			this.order = order;
+			this.length = length;
+		}
+	}
+
+	private CanonicalTable(String type, boolean isOrbitRep, char[] alphabet) {
+		this.type = type;
+		this.isOrbitRep = isOrbitRep;
+		this.alphabet = alphabet;
+		Arrays.fill(codes, -1);
+		for (int i = 0; i < alphabet.length; i++) {
+			codes[alphabet[i]] = i;
+		}
+	}
+
+	/**
+	 * Labels every graphlet of the given factory's type up to the largest order
+	 * that fits in a table.
+	 *
+	 * @param factory
+	 *            The factory of the graphlets.
+	 * @return the table of the factory's graphlets.
+	 */
+	public static CanonicalTable build(AbstractGraphletFactory<?, ?> factory) {
+		AbstractGraphlet<?> first = factory.oneNodeGraphlet();
+		CanonicalTable table = new CanonicalTable(first.getClass().getName(), factory.isOrbitRep(),
+				factory.alphabet());
+		for (int order = 1;; order++) {
+			int length = order * (order - 1) / (first.isDirected() ? 1 : 2);
+			if (Math.pow(table.alphabet.length, length) > MAX_SIZE) {
+				break;
+			}
+			table.levels.add(table.buildLevel(factory, order, length));
+		}
+		return table;
+	}
+
+	private Level buildLevel(AbstractGraphletFactory<?, ?> factory, int order, int length) {
+		Level level = new Level(order, length);
+		int size = (int) Math.pow(alphabet.length, length);
+		level.canonicalIds = new int[size];
+		level.canonicalAutomorphisms = new byte[size * order];
+		level.automorphismStarts = new int[size + 1];
+		List<String> canonicals = new ArrayList<>();
+		List<Integer> canonicalIndices = new ArrayList<>();
+		Map<String, Integer> ids = new HashMap<>();
+		List<List<Integer>> automorphisms = new ArrayList<>();
+		char[] representation = new char[length];
+		for (int index = 0; index < size; index++) {
+			for (int i = length - 1, rest = index; i >= 0; i--, rest /= alphabet.length) {
+				representation[i] = alphabet[rest % alphabet.length];
+			}
+			CanonicalLabeller labeller = new CanonicalLabeller(factory.toGraphlet(new String(representation)));
+			String canonical = labeller.getCanonical();
+			Integer id = ids.get(canonical);
+			if (id == null) {
+				id = canonicals.size();
+				ids.put(canonical, id);
+				canonicals.add(canonical);
+				canonicalIndices.add(indexOf(canonical));
+			}
+			level.canonicalIds[index] = id;
+			List<Integer> canonicalAutomorphism = labeller.getCanonicalAutomorphism();
+			for (int i = 0; i < order; i++) {
+				level.canonicalAutomorphisms[index * order + i] = (byte) (int) canonicalAutomorphism.get(i);
+			}
+			automorphisms.addAll(labeller.getAutomorphisms());
+			level.automorphismStarts[index + 1] = automorphisms.size();
+		}
+		level.canonicals = canonicals.toArray(new String[canonicals.size()]);
+		level.canonicalIndices = new int[canonicalIndices.size()];
+		for (int i = 0; i < level.canonicalIndices.length; i++) {
+			level.canonicalIndices[i] = canonicalIndices.get(i);
+		}
+		level.automorphisms = new byte[automorphisms.size() * order];
+		for (int i = 0; i < automorphisms.size(); i++) {
+			for (int j = 0; j < order; j++) {
+				level.automorphisms[i * order + j] = (byte) (int) automorphisms.get(i).get(j);
+			}
+		}
+		return level;
+	}
+
+	private int indexOf(CharSequence representation) {
+		int result = 0;
+		for (int i = 0; i < representation.length(); i++) {
+			result = result * alphabet.length + codes[representation.charAt(i)];
+		}
+		return result;
+	}
+
+	/**
+	 * Makes {@link AbstractGraphlet#permute()} use the given table for the
+	 * graphlets of its type, instead of a table that was installed before.
+	 *
+	 * @param table
+	 *            The table to be used.
+	 */
+	public static void install(CanonicalTable table) {
+		TABLES.put(table.type + (table.isOrbitRep ? "-orbits" : "-graphlets"), table);
+	}
+
+	/**
+	 * Returns the table installed for the type of the given graphlet.
+	 */
+	static CanonicalTable getInstalled(AbstractGraphlet<?> graphlet) {
+		if (TABLES.isEmpty()) {
+			return null;
+		}
+		return TABLES.get(graphlet.getClass().getName() + (graphlet.isOrbitRep() ? "-orbits" : "-graphlets"));
+	}
+
+	/**
+	 * Returns the index of the given graphlet in this table, or -1 if it is not
+	 * in this table.
+	 */
+	int indexOf(AbstractGraphlet<?> graphlet) {
+		int order = graphlet.getOrder();
+		if (order < 1 || order > levels.size()) {
+			return -1;
+		}
+		boolean directed = graphlet.isDirected();
+		int result = 0;
+		for (int i = 0; i < order; i++) {
+			for (int j = 0; j < (directed ? order : i); j++) {
+				if (i != j) {
+					char c = graphlet.getEdgeCharacter(i, j);
+					if (c >= codes.length || codes[c] < 0) {
+						return -1;
+					}
+					result = result * alphabet.length + codes[c];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gives the given graphlet its canonical form, automorphisms and canonical
+	 * automorphism from the table.
+	 *
+	 * @param graphlet
+	 *            The graphlet to be looked up.
+	 * @param index
+	 *            The index of the graphlet in this table.
+	 * @return <code>true</code> if the graphlet is canonical.
+	 */
+	boolean permute(AbstractGraphlet<?> graphlet, int index) {
+		Level level = levels.get(graphlet.getOrder() - 1);
+		int order = level.order;
+		int id = level.canonicalIds[index];
+		graphlet.canonical = level.canonicals[id];
+		graphlet.canonicalAutomorphism = toList(level.canonicalAutomorphisms, index * order, order);
+		graphlet.automorphisms = new ArrayList<>();
+		for (int i = level.automorphismStarts[index]; i < level.automorphismStarts[index + 1]; i++) {
+			graphlet.automorphisms.add(toList(level.automorphisms, i * order, order));
+		}
+		return level.canonicalIndices[id] == index;
+	}
+
+	private static List<Integer> toList(byte[] bytes, int start, int length) {
+		List<Integer> result = new ArrayList<>(length);
+		for (int i = start; i < start + length; i++) {
+			result.add((int) bytes[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes this table to the given output.
+	 *
+	 * @param out
+	 *            The output to write to.
+	 * @throws IOException
+	 *             if the output can not be written.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(type);
+		out.writeBoolean(isOrbitRep);
+		out.writeUTF(new String(alphabet));
+		out.writeInt(levels.size());
+		for (Level level : levels) {
+			out.writeInt(level.length);
+			out.writeInt(level.canonicals.length);
+			for (int i = 0; i < level.canonicals.length; i++) {
+				out.writeUTF(level.canonicals[i]);
+				out.writeInt(level.canonicalIndices[i]);
+			}
+			for (int i = 0; i < level.canonicalIds.length; i++) {
+				out.writeInt(level.canonicalIds[i]);
+				out.writeInt(level.automorphismStarts[i + 1]);
+			}
+			out.write(level.canonicalAutomorphisms);
+			out.write(level.automorphisms);
+		}
+	}
+
+	/**
+	 * Reads a table for the given factory's graphlets from the given input.
+	 *
+	 * @param in
+	 *            The input to read from.
+	 * @param factory
+	 *            The factory of the graphlets in the table.
+	 * @return the table that was read.
+	 * @throws IOException
+	 *             if the input can not be read or holds no valid table for the
+	 *             factory's graphlets.
+	 */
+	public static CanonicalTable read(DataInput in, AbstractGraphletFactory<?, ?> factory) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a canonical table");
+		}
+		if (in.readInt() != VERSION) {
+			throw new IOException("Unsupported canonical table version");
+		}
+		String type = in.readUTF();
+		boolean isOrbitRep = in.readBoolean();
+		char[] alphabet = in.readUTF().toCharArray();
+		if (!type.equals(factory.oneNodeGraphlet().getClass().getName()) || isOrbitRep != factory.isOrbitRep()
+				|| !Arrays.equals(alphabet, factory.alphabet())) {
+			throw new IOException("Canonical table made for other graphlets");
+		}
+		CanonicalTable table = new CanonicalTable(type, isOrbitRep, alphabet);
+		int levels = in.readInt();
+		for (int order = 1; order <= levels; order++) {
+			Level level = new Level(order, in.readInt());
+			level.canonicals = new String[in.readInt()];
+			level.canonicalIndices = new int[level.canonicals.length];
+			for (int i = 0; i < level.canonicals.length; i++) {
+				level.canonicals[i] = in.readUTF();
+				level.canonicalIndices[i] = in.readInt();
+			}
+			int size = (int) Math.pow(alphabet.length, level.length);
+			level.canonicalIds = new int[size];
+			level.automorphismStarts = new int[size + 1];
+			for (int i = 0; i < size; i++) {
+				level.canonicalIds[i] = in.readInt();
+				level.automorphismStarts[i + 1] = in.readInt();
+			}
+			level.canonicalAutomorphisms = new byte[size * order];
+			in.readFully(level.canonicalAutomorphisms);
+			level.automorphisms = new byte[level.automorphismStarts[size] * order];
+			in.readFully(level.automorphisms);
+			table.levels.add(level);
+		}
+		return table;
+	}
+}
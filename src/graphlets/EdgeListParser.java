@@ -0,0 +1,700 @@
+package graphlets;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Parallel parser for tab separated edge lists, as read by
+ * {@link GraphletIO#readGraph(String, Class, int)} and
+ * {@link GraphletIO#readGraph(String, Class, int, double)}.
+ *
+ * The file is memory-mapped and split into chunks on line boundaries. Every
+ * chunk is tokenised directly from its bytes by a separate thread, which
+ * interns the node names and edge types of that chunk in its own
+ * {@link NodeDictionary}. The chunks are then merged in file order, so every
+ * node gets the same id as it would when reading the file line by line, and the
+ * graph is built in one go. The merged dictionary is kept as the graph's node
+ * names. Frozen graphs are built directly in compact form by the
+ * {@link AbstractCompactGraph.Builder} of their graph type, which leaves out
+ * duplicate edges and loops, so the edges never go through a regular graph.
+ *
+ * Files compressed with gzip or zlib are recognised by their first bytes and
+ * decompressed on a separate thread, which passes blocks of whole lines to the
+ * parsing threads instead of mapped chunks.
+ *
+ * Lines are interpreted exactly like the line based readers did: lines starting
+ * with <code>#</code> are skipped, fields are separated by tabs with trailing
+ * empty fields ignored, the first two fields are the nodes and the field in the
+ * given column is the edge type. With a score threshold, the last field holds
+ * the score, optionally prefixed by <code>score:</code>, and lines with a lower
+ * or invalid score are skipped.
+ */
+public class EdgeListParser {
+
+	private static final long MIN_CHUNK = 1 << 22;
+	private static final long MAX_CHUNK = 1 << 30;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final float[] POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+			1e10f };
+	private static final byte[] SCORE = "score:".getBytes(StandardCharsets.US_ASCII);
+
+	private final int column;
+	private final boolean scored;
+	private final double confidence;
+
+	private EdgeListParser(int column, boolean scored, double confidence) {
+		this.column = column;
+		this.scored = scored;
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Reads a graph from an edge list.
+	 *
+	 * @param filename
+	 *            The edge list.
+	 * @param base
+	 *            The type of graph to be built.
+	 * @param column
+	 *            The column (starting at 1) containing the edge types, or 0 if
+	 *            there is none.
+	 * @return the graph, or <code>null</code> if the graph type can not be
+	 *         instantiated.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> T read(String filename, Class<T> base,
+			int column) {
+		T result = instantiate(base);
+		if (result != null) {
+			new EdgeListParser(column, false, 0).read(filename, result, null, false);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a graph from an edge list, keeping only the edges with a high enough
+	 * score.
+	 *
+	 * @param filename
+	 *            The edge list.
+	 * @param base
+	 *            The type of graph to be built.
+	 * @param column
+	 *            The column (starting at 1) containing the edge types, or 0 if
+	 *            there is none.
+	 * @param confidence
+	 *            The minimal score of the edges.
+	 * @return the graph, or <code>null</code> if the graph type can not be
+	 *         instantiated.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> T read(String filename, Class<T> base,
+			int column, double confidence) {
+		T result = instantiate(base);
+		if (result != null) {
+			new EdgeListParser(column, true, confidence).read(filename, result, null, false);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the frozen version of a graph from an edge list.
+	 *
+	 * @param filename
+	 *            The edge list.
+	 * @param base
+	 *            The type of graph to be read.
+	 * @param column
+	 *            The column (starting at 1) containing the edge types, or 0 if
+	 *            there is none.
+	 * @return the frozen graph, or <code>null</code> if the graph type can not
+	 *         be instantiated.
+	 * @see AbstractGraph#freeze()
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> AbstractGraph<U> readFrozen(String filename,
+			Class<T> base, int column) {
+		T graph = instantiate(base);
+		if (graph == null) {
+			return null;
+		}
+		return new EdgeListParser(column, false, 0).read(filename, graph, null, true);
+	}
+
+	/**
+	 * Reads the frozen version of a graph from an edge list, keeping only the
+	 * edges with a high enough score.
+	 *
+	 * @param filename
+	 *            The edge list.
+	 * @param base
+	 *            The type of graph to be read.
+	 * @param column
+	 *            The column (starting at 1) containing the edge types, or 0 if
+	 *            there is none.
+	 * @param confidence
+	 *            The minimal score of the edges.
+	 * @return the frozen graph, or <code>null</code> if the graph type can not
+	 *         be instantiated.
+	 * @see AbstractGraph#freeze()
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> AbstractGraph<U> readFrozen(String filename,
+			Class<T> base, int column, double confidence) {
+		T graph = instantiate(base);
+		if (graph == null) {
+			return null;
+		}
+		return new EdgeListParser(column, true, confidence).read(filename, graph, null, true);
+	}
+
+	/**
+	 * Reads an edge list once for a series of score thresholds. The edges are
+	 * kept with their scores instead of being added to the graph; see
+	 * {@link ThresholdSweep}.
+	 *
+	 * @param filename
+	 *            The edge list.
+	 * @param base
+	 *            The type of graph to be built.
+	 * @param column
+	 *            The column (starting at 1) containing the edge types, or 0 if
+	 *            there is none.
+	 * @param minimum
+	 *            The lowest threshold of the sweep.
+	 * @return the sweep, or <code>null</code> if the graph type can not be
+	 *         instantiated.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> ThresholdSweep<U> readSweep(String filename,
+			Class<T> base, int column, double minimum) {
+		T graph = instantiate(base);
+		if (graph == null) {
+			return null;
+		}
+		ThresholdSweep<U> result = new ThresholdSweep<>(graph);
+		new EdgeListParser(column, true, minimum).read(filename, graph, result, false);
+		result.sort();
+		return result;
+	}
+
+	private static <T> T instantiate(Class<T> base) {
+		try {
+			return base.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the given file into the given graph, into the sweep if there is one,
+	 * or into a frozen graph of the same type.
+	 *
+	 * @return the graph that was read, which is the given graph unless a frozen
+	 *         one is asked for.
+	 */
+	private <U extends Comparable<U>> AbstractGraph<U> read(String filename, AbstractGraph<U> result,
+			ThresholdSweep<U> sweep, boolean frozen) {
+		try {
+			return build(result, parse(filename), sweep, frozen);
+		} catch (FileNotFoundException e) {
+			System.out.println("Invalid file name");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return frozen ? result.freeze() : result;
+	}
+
+	/**
+	 * Parses all chunks of the given file, in parallel if there is more than one.
+	 */
+	private List<Chunk> parse(String filename) throws IOException {
+		InputStream input = openCompressed(filename);
+		if (input != null) {
+			return parse(filename, input);
+		}
+		List<Chunk> chunks = new ArrayList<>();
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "r"); FileChannel channel = raf.getChannel()) {
+			long length = channel.size();
+			int threads = Runtime.getRuntime().availableProcessors();
+			long chunkSize = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, length / (threads * 4L) + 1));
+			long start = 0;
+			while (start < length) {
+				long end = start + chunkSize >= length ? length : nextLine(channel, start + chunkSize, length);
+				chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+				start = end;
+			}
+		}
+		if (chunks.size() == 1) {
+			chunks.get(0).call();
+		} else if (chunks.size() > 1) {
+			ExecutorService executor = Executors
+					.newFixedThreadPool(Math.min(chunks.size(), Runtime.getRuntime().availableProcessors()));
+			try {
+				for (Future<Chunk> future : executor.invokeAll(chunks)) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + filename, e);
+			} catch (ExecutionException e) {
+				throw new IOException("Error while reading " + filename, e.getCause());
+			} finally {
+				executor.shutdown();
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Parses a compressed file. A {@link Decompressor} thread inflates the file
+	 * and cuts it into blocks of whole lines, which are parsed by the thread pool
+	 * as soon as they arrive, so reading, decompressing and parsing overlap.
+	 */
+	private List<Chunk> parse(String filename, InputStream input) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		Decompressor decompressor = new Decompressor(input, new ArrayBlockingQueue<ByteBuffer>(threads * 2));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Chunk>> futures = new ArrayList<>();
+		decompressor.start();
+		try {
+			int done = 0;
+			ByteBuffer block;
+			while ((block = decompressor.blocks.take()) != Decompressor.END) {
+				futures.add(executor.submit(new Chunk(block)));
+				// don't let the blocks pile up if parsing is slower than decompressing
+				while (futures.size() - done > threads * 2) {
+					futures.get(done++).get();
+				}
+			}
+			Throwable error = decompressor.error;
+			if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			} else if (error instanceof Error) {
+				throw (Error) error;
+			} else if (error != null) {
+				throw new IOException("Error while reading " + filename, error);
+			}
+			List<Chunk> chunks = new ArrayList<>(futures.size());
+			for (Future<Chunk> future : futures) {
+				chunks.add(future.get());
+			}
+			return chunks;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + filename, e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error while reading " + filename, e.getCause());
+		} finally {
+			decompressor.interrupt();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Opens a decompressing stream on the given file if it is compressed with
+	 * gzip or zlib (deflate), as recognised by its first bytes.
+	 *
+	 * @return the decompressed contents of the file, or <code>null</code> if the
+	 *         file is not compressed.
+	 */
+	private static InputStream openCompressed(String filename) throws IOException {
+		byte[] start = new byte[4096];
+		int length = 0;
+		try (InputStream in = new FileInputStream(filename)) {
+			int read;
+			while (length < start.length && (read = in.read(start, length, start.length - length)) > 0) {
+				length += read;
+			}
+		}
+		if (length >= 2 && start[0] == (byte) 0x1f && start[1] == (byte) 0x8b) {
+			return new GZIPInputStream(new FileInputStream(filename), BUFFER_SIZE);
+		}
+		if (isZlib(start, length)) {
+			return new InflaterInputStream(new BufferedInputStream(new FileInputStream(filename), BUFFER_SIZE));
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the given start of a file is a zlib stream. The two byte
+	 * zlib header is also valid for about one in thirty plain text files starting
+	 * with e.g. an <code>x</code>, so the start is inflated as well, which fails
+	 * quickly on text.
+	 */
+	private static boolean isZlib(byte[] start, int length) {
+		if (length < 2) {
+			return false;
+		}
+		int header = (start[0] & 0xff) << 8 | (start[1] & 0xff);
+		if ((header & 0x0f00) != 0x0800 || (header & 0xf000) > 0x7000 || (header & 0x20) != 0 || header % 31 != 0) {
+			return false;
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(start, 0, length);
+			byte[] output = new byte[BUFFER_SIZE];
+			while (!inflater.finished() && !inflater.needsInput()) {
+				inflater.inflate(output);
+			}
+			return true;
+		} catch (DataFormatException e) {
+			return false;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Thread that reads a decompressing stream and hands it to the parser in
+	 * blocks that end at a line break, followed by {@link #END}. END is also put
+	 * when reading fails, and the failure is kept for the parser to rethrow.
+	 */
+	private static class Decompressor extends Thread {
+		private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+		private final InputStream input;
+		private final BlockingQueue<ByteBuffer> blocks;
+		private volatile Throwable error;
+
+		private Decompressor(InputStream input, BlockingQueue<ByteBuffer> blocks) {
+			super("Decompressor");
+			setDaemon(true);
+			this.input = input;
+			this.blocks = blocks;
+		}
+
+		@Override
+		public void run() {
+			boolean stopped = false;
+			try (InputStream in = input) {
+				byte[] block = new byte[(int) MIN_CHUNK];
+				int filled = 0;
+				int read;
+				while ((read = in.read(block, filled, block.length - filled)) >= 0) {
+					filled += read;
+					if (filled < block.length) {
+						continue;
+					}
+					int end = filled;
+					while (end > 0 && block[end - 1] != '\n' && block[end - 1] != '\r') {
+						end--;
+					}
+					if (end == 0) {
+						// a single line longer than the block
+						block = Arrays.copyOf(block, block.length * 2);
+						continue;
+					}
+					byte[] next = new byte[Math.max((int) MIN_CHUNK, (filled - end) * 2)];
+					System.arraycopy(block, end, next, 0, filled - end);
+					blocks.put(ByteBuffer.wrap(block, 0, end));
+					block = next;
+					filled -= end;
+				}
+				if (filled > 0) {
+					blocks.put(ByteBuffer.wrap(block, 0, filled));
+				}
+			} catch (InterruptedException e) {
+				// the parser has stopped taking blocks
+				stopped = true;
+			} catch (Throwable e) {
+				error = e;
+			} finally {
+				// the parser waits for END, whatever went wrong
+				if (!stopped) {
+					try {
+						blocks.put(END);
+					} catch (InterruptedException e) {
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the position right after the first newline at or after the given
+	 * position, or the length of the file if there is none.
+	 */
+	private static long nextLine(FileChannel channel, long position, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long start = position - 1;
+		while (start < length) {
+			buffer.clear();
+			int read = channel.read(buffer, start);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return start + i + 1;
+				}
+			}
+			start += read;
+		}
+		return length;
+	}
+
+	/**
+	 * Merges the chunks in file order and adds their nodes to the graph, and
+	 * their edges to the graph or to the sweep. A frozen graph is built by the
+	 * builder of the graph type if it has one, and frozen afterwards otherwise.
+	 *
+	 * @return the graph that was built.
+	 */
+	private static <U extends Comparable<U>> AbstractGraph<U> build(AbstractGraph<U> result, List<Chunk> chunks,
+			ThresholdSweep<U> sweep, boolean frozen) {
+		NodeDictionary legend = new NodeDictionary();
+		List<int[]> nodes = new ArrayList<>(chunks.size());
+		List<List<U>> types = new ArrayList<>(chunks.size());
+		for (Chunk chunk : chunks) {
+			int[] ids = new int[chunk.nodes.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = legend.intern(chunk.nodes, i);
+			}
+			nodes.add(ids);
+			List<U> chunkTypes = new ArrayList<>(chunk.types.size());
+			for (int i = 0; i < chunk.types.size(); i++) {
+				chunkTypes.add(result.getType(chunk.types.getName(i)));
+			}
+			types.add(chunkTypes);
+		}
+		AbstractCompactGraph.Builder<U> builder = frozen ? result.builder(legend.size()) : null;
+		if (builder == null) {
+			for (int i = 0; i < legend.size(); i++) {
+				result.addNode();
+			}
+			result.setNodeNames(legend);
+		}
+		for (int c = 0; c < chunks.size(); c++) {
+			int[] edges = chunks.get(c).edges;
+			int[] ids = nodes.get(c);
+			List<U> chunkTypes = types.get(c);
+			float[] scores = chunks.get(c).scores;
+			for (int i = 0; i < chunks.get(c).count; i += 3) {
+				if (sweep != null) {
+					sweep.add(ids[edges[i]], ids[edges[i + 1]], chunkTypes.get(edges[i + 2]), scores[i / 3]);
+				} else {
+					try {
+						if (builder != null) {
+							builder.addEdge(ids[edges[i]], ids[edges[i + 1]], chunkTypes.get(edges[i + 2]));
+						} else {
+							result.addEdge(ids[edges[i]], ids[edges[i + 1]], chunkTypes.get(edges[i + 2]));
+						}
+					} catch (IllegalGraphActionException e) {
+					}
+				}
+			}
+		}
+		if (builder != null) {
+			builder.setNodeNames(legend);
+			return builder.build();
+		}
+		return frozen ? result.freeze() : result;
+	}
+
+	/**
+	 * A part of the file, consisting of whole lines, together with the result of
+	 * parsing it.
+	 */
+	private class Chunk implements Callable<Chunk> {
+		private ByteBuffer buffer;
+		private final NodeDictionary nodes = new NodeDictionary();
+		private final NodeDictionary types = new NodeDictionary();
+		// first node, second node and edge type of every accepted line
+		private int[] edges = new int[3 * 1024];
+		// only kept for scored reads
+		private float[] scores = scored ? new float[1024] : null;
+		private int count = 0;
+		private int[] starts = new int[16];
+		private int[] ends = new int[16];
+		private byte[] token = new byte[256];
+		private float score;
+
+		private Chunk(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public Chunk call() {
+			int limit = buffer.limit();
+			int position = 0;
+			while (position < limit) {
+				int lineStart = position;
+				int fields = 0;
+				int fieldStart = position;
+				byte b = 0;
+				while (position < limit && (b = buffer.get(position)) != '\n' && b != '\r') {
+					if (b == '\t') {
+						fields = addField(fields, fieldStart, position);
+						fieldStart = position + 1;
+					}
+					position++;
+				}
+				fields = addField(fields, fieldStart, position);
+				if (position < limit) {
+					position++;
+					if (b == '\r' && position < limit && buffer.get(position) == '\n') {
+						position++;
+					}
+				}
+				if (position > lineStart && buffer.get(lineStart) != '#') {
+					parseLine(fields);
+				}
+			}
+			// the chunks are kept until all of them are parsed, their bytes are not
+			buffer = null;
+			return this;
+		}
+
+		private int addField(int fields, int start, int end) {
+			if (fields == starts.length) {
+				starts = Arrays.copyOf(starts, fields * 2);
+				ends = Arrays.copyOf(ends, fields * 2);
+			}
+			starts[fields] = start;
+			ends[fields] = end;
+			return fields + 1;
+		}
+
+		private void parseLine(int fields) {
+			// String.split drops trailing empty fields, unless there is only one
+			int length = fields;
+			if (fields > 1) {
+				while (length > 0 && starts[length - 1] == ends[length - 1]) {
+					length--;
+				}
+			}
+			if (scored) {
+				if (length < 3) {
+					return;
+				}
+				int from = starts[length - 1];
+				if (startsWithScore(from, ends[length - 1])) {
+					from += SCORE.length;
+				}
+				if (!parseScore(from, ends[length - 1]) || !(score >= confidence)) {
+					return;
+				}
+			} else if (length < column) {
+				return;
+			}
+			if (length < 2) {
+				return;
+			}
+			int a = intern(nodes, starts[0], ends[0]);
+			int b = intern(nodes, starts[1], ends[1]);
+			int type = column >= 1 && column <= length ? intern(types, starts[column - 1], ends[column - 1])
+					: intern(types, 0, 0);
+			if (count + 3 > edges.length) {
+				edges = Arrays.copyOf(edges, edges.length * 2);
+				if (scores != null) {
+					scores = Arrays.copyOf(scores, scores.length * 2);
+				}
+			}
+			if (scores != null) {
+				scores[count / 3] = score;
+			}
+			edges[count++] = a;
+			edges[count++] = b;
+			edges[count++] = type;
+		}
+
+		private int intern(NodeDictionary dictionary, int from, int to) {
+			int length = to - from;
+			if (length > token.length) {
+				token = new byte[Math.max(length, token.length * 2)];
+			}
+			for (int i = 0; i < length; i++) {
+				token[i] = buffer.get(from + i);
+			}
+			return dictionary.intern(token, 0, length);
+		}
+
+		private boolean startsWithScore(int from, int to) {
+			if (to - from < SCORE.length) {
+				return false;
+			}
+			for (int i = 0; i < SCORE.length; i++) {
+				byte b = buffer.get(from + i);
+				if (b != SCORE[i] && b != SCORE[i] - 'a' + 'A') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Parses the score in the given range into {@link #score}, with the same
+		 * result as Float.parseFloat. Plain decimal numbers with few digits are
+		 * parsed directly from the bytes: a mantissa of at most 2^24 divided by a
+		 * power of ten up to 10^10 are both exact floats, so their quotient is
+		 * correctly rounded. Anything else is passed on to Float.parseFloat.
+		 *
+		 * @return <code>false</code> if the range does not contain a number.
+		 */
+		private boolean parseScore(int from, int to) {
+			int i = from;
+			boolean negative = false;
+			if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+				negative = buffer.get(i) == '-';
+				i++;
+			}
+			int mantissa = 0;
+			int digits = 0;
+			int decimals = 0;
+			boolean point = false;
+			boolean simple = true;
+			for (; i < to && simple; i++) {
+				byte b = buffer.get(i);
+				if (b >= '0' && b <= '9') {
+					mantissa = mantissa * 10 + b - '0';
+					digits++;
+					if (point) {
+						decimals++;
+					}
+					simple = mantissa <= 1 << 24 && decimals < POWERS_OF_TEN.length;
+				} else if (b == '.' && !point) {
+					point = true;
+				} else {
+					simple = false;
+				}
+			}
+			if (simple && digits > 0) {
+				score = mantissa / POWERS_OF_TEN[decimals];
+				if (negative) {
+					score = -score;
+				}
+				return true;
+			}
+			byte[] bytes = new byte[to - from];
+			for (int j = 0; j < bytes.length; j++) {
+				bytes[j] = buffer.get(from + j);
+			}
+			try {
+				score = Float.parseFloat(new String(bytes, StandardCharsets.UTF_8));
+				return true;
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+	}
+}
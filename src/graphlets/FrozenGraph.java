@@ -0,0 +1,179 @@
+package graphlets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+
+/**
+ * Read-only compact snapshot of an arbitrary graph, used by
+ * {@link AbstractGraph#freeze()} for graph types without a dedicated compact
+ * implementation. Every node has two rows per edge type of the graph's
+ * graphlets: first the neighbours for every edge type, then the inverted
+ * neighbours for every edge type.
+ *
+ * The graphlet type and the parsing of edge types are still delegated to the
+ * original graph, which must therefore not be modified after freezing.
+ *
+ * @param <T>
+ *            A datatype with which the graph represents its edge types.
+ */
+public class FrozenGraph<T extends Comparable<T>> extends AbstractCompactGraph<T> {
+
+	private final AbstractGraph<T> source;
+	private final List<T> edgeTypes;
+	private final SortedMap<T, Integer> typeIndices;
+	private final double density;
+	private final boolean complete;
+
+	/**
+	 * Creates a frozen copy of the given graph.
+	 *
+	 * @param graph
+	 *            The graph to be copied.
+	 */
+	public FrozenGraph(AbstractGraph<T> graph) {
+		this(graph, new ArrayList<>(graph.getGraphletType(false).getEdgeTypes()));
+	}
+
+	private FrozenGraph(AbstractGraph<T> graph, List<T> edgeTypes) {
+		super(graph.getOrder(), graph.getSize(), rowsOf(graph, edgeTypes));
+		nodeNames = copyOf(graph.getNodeNames());
+		source = graph;
+		this.edgeTypes = Collections.unmodifiableList(edgeTypes);
+		typeIndices = new TreeMap<>();
+		for (int i = 0; i < edgeTypes.size(); i++) {
+			typeIndices.put(edgeTypes.get(i), i);
+		}
+		density = graph.density();
+		complete = graph.isComplete();
+	}
+
+	private FrozenGraph(FrozenGraph<T> graph, int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		super(graph, offsets, targets, originalNodes, hubDegree);
+		source = graph.source;
+		edgeTypes = graph.edgeTypes;
+		typeIndices = graph.typeIndices;
+		density = graph.density;
+		complete = graph.complete;
+	}
+
+	@Override
+	public Class<?> getSourceType() {
+		return source.getClass();
+	}
+
+	@Override
+	protected FrozenGraph<T> derive(int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		return new FrozenGraph<>(this, offsets, targets, originalNodes, hubDegree);
+	}
+
+	private static <T extends Comparable<T>> List<Collection<Integer>> rowsOf(AbstractGraph<T> graph,
+			List<T> edgeTypes) {
+		List<Collection<Integer>> rows = new ArrayList<>(graph.getOrder() * edgeTypes.size() * 2);
+		for (int i = 0; i < graph.getOrder(); i++) {
+			for (T type : edgeTypes) {
+				rows.add(IntSlice.of(graph.getNeighbours(i, type)));
+			}
+			for (T type : edgeTypes) {
+				rows.add(IntSlice.of(graph.getInvertedNeighbours(i, type)));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the row with the given kind of neighbours, or -1 if the edge type
+	 * is unknown.
+	 */
+	private int rowOf(int node, T edgeType, boolean inverted) {
+		Integer index = edgeType == null ? null : typeIndices.get(edgeType);
+		if (index == null) {
+			return -1;
+		}
+		return (node * 2 + (inverted ? 1 : 0)) * edgeTypes.size() + index;
+	}
+
+	@Override
+	public SortedSet<T> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<T> result = new TreeSet<>();
+		for (T type : edgeTypes) {
+			if (rowContains(rowOf(node1, type, false), node2)) {
+				result.add(type);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, T edgeType) {
+		int row = rowOf(node, edgeType, false);
+		return row < 0 ? IntSlice.EMPTY : row(row);
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, T edgeType) {
+		int row = rowOf(node, edgeType, true);
+		return row < 0 ? IntSlice.EMPTY : row(row);
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, T edgeType) {
+		int row = rowOf(node1, edgeType, false);
+		return row >= 0 && rowContains(row, node2);
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<T>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<T>> result = new TreeMap<>();
+		for (T type : edgeTypes) {
+			for (int neighbour : row(rowOf(node, type, false))) {
+				SortedSet<T> edges = result.get(neighbour);
+				if (edges == null) {
+					edges = new TreeSet<>();
+					result.put(neighbour, edges);
+				}
+				edges.add(type);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public double density() {
+		return density;
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<T>, T> getGraphletType(boolean useOrbits) {
+		return source.getGraphletType(useOrbits);
+	}
+
+	@Override
+	public T getType(String pieces) {
+		return source.getType(pieces);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < order; i++) {
+			sb.append(getNeighbours(i));
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,274 @@
+package graphlets;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A graphlet's representation packed into two longs, so that graphlets can be
+ * stored, hashed and compared without Strings. Every character of the
+ * representation takes a fixed number of bits, the first character in the
+ * highest bits, and stands for its index in an alphabet that lists
+ * <code>'0'</code> first and the other characters in increasing order. Codes
+ * of the same alphabet are ordered like their representations are by the
+ * {@link CanonicalComparator}.
+ *
+ * At most 128 bits can be used, so a representation fits if its length times
+ * the number of bits per character, the base 2 logarithm of the alphabet size
+ * rounded up, is at most 128. At order 8, for example, simple and coloured
+ * graphlets have 28 characters, which fit with alphabets of up to 16
+ * characters, i.e. up to 15 colours, and directed and signed graphlets have 56
+ * characters, which fit with alphabets of up to 4 characters. See
+ * {@link #fits(int, Alphabet)}.
+ */
+public final class GraphletCode implements Comparable<GraphletCode>, Serializable {
+
+	private static final long serialVersionUID = 4172207305836181512L;
+	private static final int CAPACITY = 128;
+
+	private final int length;
+	private final long high;
+	private final long low;
+
+	/**
+	 * The characters of the representations of a graphlet type, with a lookup
+	 * table from every character to its index, made once per graphlet factory.
+	 * Alphabets can not be modified, so they can be shared by any number of
+	 * threads.
+	 */
+	public static final class Alphabet {
+		private final char[] characters;
+		private final int[] indices;
+		private final int bits;
+
+		/**
+		 * Creates an alphabet of the given characters.
+		 *
+		 * @param characters
+		 *            The characters that can occur in the representations,
+		 *            <code>'0'</code> first and the others in increasing order.
+		 */
+		public Alphabet(char[] characters) {
+			this.characters = characters.clone();
+			char max = 0;
+			for (char c : characters) {
+				max = (char) Math.max(max, c);
+			}
+			indices = new int[max + 1];
+			Arrays.fill(indices, -1);
+			for (int i = 0; i < characters.length; i++) {
+				indices[characters[i]] = i;
+			}
+			bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(characters.length - 1));
+		}
+
+		/**
+		 * Returns the index of the given character in this alphabet.
+		 *
+		 * @param c
+		 *            The character.
+		 * @return the index of the character, or -1 if it is not in the alphabet.
+		 */
+		public int indexOf(char c) {
+			return c < indices.length ? indices[c] : -1;
+		}
+
+		/**
+		 * Returns the characters of this alphabet.
+		 *
+		 * @return a copy of the characters, in the order of their indices.
+		 */
+		public char[] getCharacters() {
+			return characters.clone();
+		}
+	}
+
+	private GraphletCode(int length, long high, long low) {
+		this.length = length;
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Checks whether representations of the given length can be packed.
+	 *
+	 * @param length
+	 *            The length of the representations.
+	 * @param alphabet
+	 *            The alphabet of the representations.
+	 * @return <code>true</code> if the representations fit in a code.
+	 */
+	public static boolean fits(int length, Alphabet alphabet) {
+		return length * alphabet.bits <= CAPACITY;
+	}
+
+	/**
+	 * Packs the given representation.
+	 *
+	 * @param representation
+	 *            The representation to be packed.
+	 * @param alphabet
+	 *            The alphabet of the representation.
+	 * @return the code of the representation.
+	 * @throws IllegalArgumentException
+	 *             if the representation contains a character that is not in the
+	 *             alphabet or is too long to be packed.
+	 */
+	public static GraphletCode encode(CharSequence representation, Alphabet alphabet) {
+		if (!fits(representation.length(), alphabet)) {
+			throw new IllegalArgumentException("Representation " + representation + " is too long to be packed");
+		}
+		long[] words = new long[2];
+		for (int i = 0; i < representation.length(); i++) {
+			int value = alphabet.indexOf(representation.charAt(i));
+			if (value < 0) {
+				throw new IllegalArgumentException(
+						"Invalid character " + representation.charAt(i) + " in representation " + representation);
+			}
+			put(words, i, alphabet.bits, value);
+		}
+		return new GraphletCode(representation.length(), words[0], words[1]);
+	}
+
+	/**
+	 * Packs the canonical representation of the given graphlet, taking its
+	 * characters from the graphlet's canonical labelling instead of building
+	 * the representation.
+	 *
+	 * @param graphlet
+	 *            The graphlet whose canonical form is packed.
+	 * @param alphabet
+	 *            The alphabet of the graphlet's type.
+	 * @return the code of the graphlet's canonical representation.
+	 * @throws IllegalArgumentException
+	 *             if the graphlet has a character that is not in the alphabet
+	 *             or is too large to be packed.
+	 */
+	public static GraphletCode canonical(AbstractGraphlet<?> graphlet, Alphabet alphabet) {
+		List<Integer> labelling = graphlet.getCanonicalAutomorphism();
+		int order = labelling.size();
+		boolean directed = graphlet.isDirected();
+		int length = directed ? order * (order - 1) : order * (order - 1) / 2;
+		if (!fits(length, alphabet)) {
+			throw new IllegalArgumentException("Graphlet of order " + order + " is too large to be packed");
+		}
+		long[] words = new long[2];
+		int position = 0;
+		for (int i = 0; i < order; i++) {
+			for (int j = 0; j < (directed ? order : i); j++) {
+				if (i != j) {
+					char c = graphlet.getEdgeCharacter(labelling.get(i), labelling.get(j));
+					int value = alphabet.indexOf(c);
+					if (value < 0) {
+						throw new IllegalArgumentException("Invalid character " + c + " in graphlet");
+					}
+					put(words, position++, alphabet.bits, value);
+				}
+			}
+		}
+		return new GraphletCode(length, words[0], words[1]);
+	}
+
+	/**
+	 * Puts the given value at the given character position of the high and low
+	 * word.
+	 */
+	private static void put(long[] words, int position, int bits, long value) {
+		int shift = CAPACITY - (position + 1) * bits;
+		if (shift >= 64) {
+			words[0] |= value << (shift - 64);
+		} else if (shift > 64 - bits) {
+			words[0] |= value >>> (64 - shift);
+			words[1] |= value << shift;
+		} else {
+			words[1] |= value << shift;
+		}
+	}
+
+	/**
+	 * Unpacks this code into the representation it was made from.
+	 *
+	 * @param alphabet
+	 *            The alphabet the code was made with.
+	 * @return the representation of this code.
+	 */
+	public String decode(Alphabet alphabet) {
+		int bits = alphabet.bits;
+		long mask = (1L << bits) - 1;
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			int shift = CAPACITY - (i + 1) * bits;
+			long value;
+			if (shift >= 64) {
+				value = high >>> (shift - 64);
+			} else if (shift > 64 - bits) {
+				value = (high << (64 - shift)) | (low >>> shift);
+			} else {
+				value = low >>> shift;
+			}
+			builder.append(alphabet.characters[(int) (value & mask)]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the length of the representation of this code.
+	 *
+	 * @return the number of characters in the representation.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the highest 64 bits of this code.
+	 *
+	 * @return the highest bits of this code.
+	 */
+	public long getHigh() {
+		return high;
+	}
+
+	/**
+	 * Returns the lowest 64 bits of this code.
+	 *
+	 * @return the lowest bits of this code.
+	 */
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public int compareTo(GraphletCode other) {
+		if (length != other.length) {
+			return length - other.length;
+		}
+		int result = Long.compareUnsigned(high, other.high);
+		return result != 0 ? result : Long.compareUnsigned(low, other.low);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + length;
+		result = prime * result + (int) (high ^ (high >>> 32));
+		result = prime * result + (int) (low ^ (low >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof GraphletCode))
+			return false;
+		GraphletCode other = (GraphletCode) obj;
+		return length == other.length && high == other.high && low == other.low;
+	}
+
+	@Override
+	public String toString() {
+		return length + ":" + Long.toHexString(high) + ":" + Long.toHexString(low);
+	}
+}
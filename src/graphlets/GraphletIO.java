@@ -1,7 +1,6 @@
 package graphlets;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -10,31 +9,33 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
 
 import equationgeneration.Equation;
+import equationgeneration.EquationIO;
+import graphletgeneration.AbstractGraphletFactory;
 import graphlets.coGraphlet.CoGraph;
+import graphlets.diGraphlet.CompactDiGraph;
 import graphlets.diGraphlet.DiGraph;
 import graphlets.genGraphlet.GenGraph;
 import graphlets.simpleGraphlet.SimpleGraph;
 import tree.GraphletTree;
+import tree.TreeIO;
 
 public class GraphletIO {
 
+	private static final int MATRIX_BLOCK = 1 << 22;
+
 	public static void save(GraphletTree<?, ?> tree, String fileName) {
-		try (FileOutputStream fos = new FileOutputStream(fileName);
-				ObjectOutputStream oos = new ObjectOutputStream(fos);) {
-			oos.writeObject(tree);
-		} catch (FileNotFoundException e) {
-			// Error in accessing the file
-			e.printStackTrace();
+		try {
+			TreeIO.write(tree, new File(fileName));
 		} catch (IOException e) {
-			// Error in converting the Student
 			e.printStackTrace();
 		}
 	}
@@ -52,15 +53,11 @@ public class GraphletIO {
 		}
 	}
 
-	public static <T extends AbstractGraphlet<?>> void save(Collection<Equation<T>> eq, String fileName) {
-		try (FileOutputStream fos = new FileOutputStream(fileName);
-				ObjectOutputStream oos = new ObjectOutputStream(fos);) {
-			oos.writeObject(eq);
-		} catch (FileNotFoundException e) {
-			// Error in accessing the file
-			e.printStackTrace();
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void save(Collection<Equation<T>> eq,
+			AbstractGraphletFactory<T, U> factory, String fileName) {
+		try {
+			EquationIO.write(eq, factory, new File(fileName));
 		} catch (IOException e) {
-			// Error in converting the Student
 			e.printStackTrace();
 		}
 	}
@@ -74,142 +71,53 @@ public class GraphletIO {
 		System.out.println(cg.getNColors());
 	}
 	
+	/**
+	 * Reads a graph from a tab separated edge list, using the field in the given
+	 * column as edge type. See {@link EdgeListParser}.
+	 */
 	public static <T extends AbstractGraph<U>, U extends Comparable<U>> T readGraph(String filename, Class<T> base,
 			int column) {
-		File file = new File(filename);
-		Map<String, Integer> legend = new HashMap<>();
-		int counter = 0;
-		T result = null;
-		try {
-			result = base.newInstance();
-			Scanner scanner = new Scanner(file);
-			boolean started = false;
-			int linenr = 0;
-			int ignored = 0;
-			while (scanner.hasNextLine()) {
-				linenr++;
-				String s = scanner.nextLine();
-				// System.out.println(s);
-				if (!s.startsWith("#")) {
-					String[] namen = s.split("\t");
-					// System.out.println(Arrays.toString(namen));
-					if (namen.length >= column) {
-						String node1 = namen[0];
-						if (!legend.containsKey(node1)) {
-							legend.put(node1, counter++);
-							result.addNode();
-						}
-						int a = legend.get(node1);
-						String node2 = namen[1];
-						if (!legend.containsKey(node2)) {
-							legend.put(node2, counter++);
-							result.addNode();
-						}
-						// System.out.println(result.order);
-						int b = legend.get(node2);
-						try {
-							// System.out.println(a+" "+b+" "+result.getType(namen));
-							try {
-								result.addEdge(a, b, result.getType(namen[column - 1]));
-							} catch (ArrayIndexOutOfBoundsException e) {
-								result.addEdge(a, b, result.getType(""));
-							}
-						} catch (IllegalGraphActionException e) {
-//							 System.out.println("Ignoring line " + linenr + ": " + e.getMessage());
-							ignored++;
-						}
-					}
-				}
-			}
-//			System.out.println("Ignored " + ignored + " of " + linenr + " lines");
-			scanner.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("Invalid file name");
-		} catch (InstantiationException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		} catch (IllegalAccessException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
-		return result;
+		return EdgeListParser.read(filename, base, column);
 	}
 
+	/**
+	 * Reads a graph from a tab separated edge list, using the field in the given
+	 * column as edge type and skipping the edges whose score in the last field is
+	 * lower than the given confidence. See {@link EdgeListParser}.
+	 */
 	public static <T extends AbstractGraph<U>, U extends Comparable<U>> T readGraph(String filename, Class<T> base,
 			int column, double confidence) {
-		File file = new File(filename);
-		Map<String, Integer> legend = new HashMap<>();
-		int counter = 0;
-		T result = null;
-		try {
-			result = base.newInstance();
-			Scanner scanner = new Scanner(file);
-			boolean started = false;
-			int linenr = 0;
-			int ignored = 0;
-			while (scanner.hasNextLine()) {
-				linenr++;
-				String s = scanner.nextLine();
-				// System.out.println(s);
-				if (!s.startsWith("#")) {
-					String[] namen = s.split("\t");
-					// System.out.println(Arrays.toString(namen));
-					if (namen.length >= 3) {
-						String c = namen[namen.length - 1];
-						if (namen[namen.length - 1].toLowerCase().startsWith("score:")) {
-							c = namen[namen.length - 1].substring(6);
-						}
-						try {
-							float score = Float.parseFloat(c);
-							if (score >= confidence) {
+		return EdgeListParser.read(filename, base, column, confidence);
+	}
 
-								String node1 = namen[0];
-								if (!legend.containsKey(node1)) {
-									legend.put(node1, counter++);
-									result.addNode();
-								}
-								int a = legend.get(node1);
-								String node2 = namen[1];
-								if (!legend.containsKey(node2)) {
-									legend.put(node2, counter++);
-									result.addNode();
-								}
-								// System.out.println(result.order);
-								int b = legend.get(node2);
-								try {
-									// System.out.println(a+" "+b+" "+result.getType(namen));
-									try {
-										result.addEdge(a, b, result.getType(namen[column - 1]));
-									} catch (ArrayIndexOutOfBoundsException e) {
-										result.addEdge(a, b, result.getType(""));
-									}
-								} catch (IllegalGraphActionException e) {
-//									 System.out.println("Ignoring line " + linenr + ": " + e.getMessage());
-									ignored++;
-								}
-								// result.addEdge(a, b, result.getType(namen[column - 1]));
-							} else {
-//								 System.out.println("Ignoring line " + linenr + ": " + "too low confidence");
-								ignored++;
-							}
-						} catch (NumberFormatException e) {
-//							 System.out.println("Ignoring line " + linenr + ": " + e.getMessage());
-							ignored++;
-						}
-					}
-				}
-			}
-			scanner.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("Invalid file name");
-		} catch (InstantiationException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		} catch (IllegalAccessException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
-		return result;
+	/**
+	 * Reads the frozen version of a graph from a tab separated edge list, using
+	 * the field in the given column as edge type. The compact graph is built
+	 * directly, without a regular graph in between. See {@link EdgeListParser}.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> AbstractGraph<U> readFrozenGraph(
+			String filename, Class<T> base, int column) {
+		return EdgeListParser.readFrozen(filename, base, column);
+	}
+
+	/**
+	 * Reads the frozen version of a graph from a tab separated edge list, like
+	 * {@link #readFrozenGraph(String, Class, int)}, skipping the edges whose
+	 * score in the last field is lower than the given confidence.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> AbstractGraph<U> readFrozenGraph(
+			String filename, Class<T> base, int column, double confidence) {
+		return EdgeListParser.readFrozen(filename, base, column, confidence);
+	}
+
+	/**
+	 * Reads a tab separated edge list once for counting at several score
+	 * thresholds, keeping the edges whose score is at least the given minimum.
+	 * See {@link ThresholdSweep}.
+	 */
+	public static <T extends AbstractGraph<U>, U extends Comparable<U>> ThresholdSweep<U> readSweep(String filename,
+			Class<T> base, int column, double minimum) {
+		return EdgeListParser.readSweep(filename, base, column, minimum);
 	}
 
 	public static void draw(List<AbstractGraphlet<?>> g, String fileName) {
@@ -226,53 +134,116 @@ public class GraphletIO {
 		}
 	}
 	
-	public static DiGraph readMatrix(float threshold) {
+	/**
+	 * Reads the directed graph of the findr matrix in the test directory.
+	 * 
+	 * @see #readMatrix(String, int, float)
+	 */
+	public static CompactDiGraph readMatrix(float threshold) throws IOException {
+		return readMatrix("test/findr_geuvadis_ptrans_colorder.dat", 3172, threshold);
+	}
+
+	/**
+	 * Reads a directed graph from a square matrix of little endian floats, stored
+	 * row by row, with an arc from node i to node j if the value in row i and
+	 * column j is larger than the threshold. The matrix is streamed in blocks of
+	 * rows and the arcs go straight into a {@link CompactDiGraph.Builder}, so only
+	 * the arcs are kept in memory, not the matrix.
+	 * 
+	 * @param filename
+	 *            The file containing the matrix.
+	 * @param dim
+	 *            The number of rows and columns of the matrix.
+	 * @param threshold
+	 *            The value an entry has to exceed to become an arc.
+	 * @return the graph.
+	 * @throws IOException
+	 *             if the file can not be read or has less than
+	 *             <code>dim</code> rows.
+	 */
+	public static CompactDiGraph readMatrix(String filename, int dim, float threshold) throws IOException {
+		CompactDiGraph.Builder builder = new CompactDiGraph.Builder(dim);
+		scanMatrix(filename, dim, threshold, builder, null);
+		CompactDiGraph graph = builder.build();
+		System.out.println(graph.getOrder() + ", " + graph.getSize());
+		return graph;
+	}
+
+	/**
+	 * Reads the findr matrix in the test directory once for counting at several
+	 * thresholds.
+	 * 
+	 * @see #readMatrixSweep(String, int, float)
+	 */
+	public static ThresholdSweep<Boolean> readMatrixSweep(float minimum) throws IOException {
+		return readMatrixSweep("test/findr_geuvadis_ptrans_colorder.dat", 3172, minimum);
+	}
+
+	/**
+	 * Reads a matrix like {@link #readMatrix(String, int, float)} once for
+	 * counting at several thresholds, keeping the arcs whose value is larger
+	 * than the given minimum. See {@link ThresholdSweep}.
+	 * 
+	 * @param filename
+	 *            The file containing the matrix.
+	 * @param dim
+	 *            The number of rows and columns of the matrix.
+	 * @param minimum
+	 *            The lowest threshold of the sweep.
+	 * @return the sweep.
+	 * @throws IOException
+	 *             if the file can not be read or has less than
+	 *             <code>dim</code> rows.
+	 */
+	public static ThresholdSweep<Boolean> readMatrixSweep(String filename, int dim, float minimum)
+			throws IOException {
 		DiGraph graph = new DiGraph();
-		for(int i=0;i<3172;i++) {
+		for (int i = 0; i < dim; i++) {
 			graph.addNode();
 		}
-		float[][]matrix = pdat();
-		for(int i=0;i<3172;i++) {
-			for(int j=0;j<3172;j++) {
-//				System.out.print(matrix[i][j]+" ");
-				if(matrix[i][j]>threshold) {
-					try {
-						graph.addEdge(i, j, true);
-					} catch (IllegalGraphActionException e) {
-						// TODO Auto-generated catch block
-//						e.printStackTrace();
+		ThresholdSweep<Boolean> sweep = new ThresholdSweep<>(graph, true);
+		scanMatrix(filename, dim, minimum, null, sweep);
+		sweep.sort();
+		return sweep;
+	}
+
+	/**
+	 * Streams the matrix in blocks of rows and adds every arc whose value is
+	 * larger than the threshold to the builder, or with its value to the sweep.
+	 */
+	private static void scanMatrix(String filename, int dim, float threshold, CompactDiGraph.Builder builder,
+			ThresholdSweep<Boolean> sweep) throws IOException {
+		try (FileInputStream fis = new FileInputStream(filename); FileChannel channel = fis.getChannel()) {
+			int rowsPerBlock = (int) Math.max(1, MATRIX_BLOCK / (dim * 4L));
+			ByteBuffer buffer = ByteBuffer.allocateDirect(rowsPerBlock * dim * 4).order(ByteOrder.LITTLE_ENDIAN);
+			for (int row = 0; row < dim; row += rowsPerBlock) {
+				int rows = Math.min(rowsPerBlock, dim - row);
+				buffer.clear();
+				buffer.limit(rows * dim * 4);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						throw new EOFException(filename + " has less than " + dim + " rows");
 					}
 				}
-			}
-//			System.out.println();
-		}
-		System.out.println(graph.order+", "+graph.size);
-		return graph;
-	}
-	
-	private static float[][] pdat() {
-		int dim = 3172;
-		float[][] matrix = new float[dim][dim];
-		try {
-			DataInputStream in = new DataInputStream(
-					new BufferedInputStream(new FileInputStream("test/findr_geuvadis_ptrans_colorder.dat")));
-			for (int i = 0; i < dim; i++) {
-				for (int j = 0; j < dim; j++) {
-					matrix[i][j] = Float.intBitsToFloat(readInt(in));
+				buffer.flip();
+				FloatBuffer values = buffer.asFloatBuffer();
+				for (int i = 0; i < rows; i++) {
+					for (int j = 0; j < dim; j++) {
+						float value = values.get(i * dim + j);
+						if (value > threshold) {
+							if (sweep != null) {
+								sweep.add(row + i, j, true, value);
+							} else {
+								try {
+									builder.addArc(row + i, j);
+								} catch (IllegalGraphActionException e) {
+								}
+							}
+						}
+					}
 				}
 			}
-			in.close();
-		} catch (Exception e) {
-		}
-		return matrix;
-	}
-
-	private static int readInt(DataInputStream in) throws IOException {
-		int val = 0;
-		for (int i = 0; i < 4; i++) {
-			val = (int) (val | (((int) in.readUnsignedByte()) << (i * 8)));
 		}
-		return val;
 	}
 
 	@SuppressWarnings("unchecked")
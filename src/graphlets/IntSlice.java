@@ -0,0 +1,395 @@
+package graphlets;
+
+import java.nio.IntBuffer;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only SortedSet view on a sorted range of an int array. Used by the
+ * compact graph implementations to hand out neighbour lists without copying
+ * them into boxed collections.
+ *
+ * A slice can also be a view on a range of an IntBuffer, such as a
+ * memory-mapped file. The buffer is only read with absolute gets, so its
+ * position and limit are never used and one buffer can back any number of
+ * slices in any number of threads.
+ *
+ * The values in the range <code>[from, to)</code> of the backing array must be
+ * strictly increasing. The backing array is never modified through this view.
+ *
+ * A slice can optionally carry a bitset with the same values, which is then
+ * used for membership tests and intersections instead of binary searches.
+ *
+ * @see AbstractCompactGraph
+ */
+public class IntSlice extends AbstractSet<Integer> implements SortedSet<Integer> {
+
+	private static final int[] EMPTY_ARRAY = new int[0];
+
+	/**
+	 * An empty IntSlice.
+	 */
+	public static final IntSlice EMPTY = new IntSlice(EMPTY_ARRAY, 0, 0);
+
+	protected final int[] array;
+	protected final IntBuffer buffer;
+	protected final int from;
+	protected final int to;
+	protected final long[] bits;
+
+	/**
+	 * Creates a view on the range <code>[from, to)</code> of the given array.
+	 *
+	 * @param array
+	 *            The backing array.
+	 * @param from
+	 *            The first index of the range, inclusive.
+	 * @param to
+	 *            The last index of the range, exclusive.
+	 */
+	public IntSlice(int[] array, int from, int to) {
+		this(array, from, to, null);
+	}
+
+	/**
+	 * Creates a view on the range <code>[from, to)</code> of the given array,
+	 * backed by a bitset for membership tests.
+	 *
+	 * @param array
+	 *            The backing array.
+	 * @param from
+	 *            The first index of the range, inclusive.
+	 * @param to
+	 *            The last index of the range, exclusive.
+	 * @param bits
+	 *            A bitset containing exactly the values of the range, or
+	 *            <code>null</code>.
+	 */
+	public IntSlice(int[] array, int from, int to, long[] bits) {
+		this(array, null, from, to, bits);
+	}
+
+	/**
+	 * Creates a view on the range <code>[from, to)</code> of the given buffer.
+	 *
+	 * @param buffer
+	 *            The backing buffer.
+	 * @param from
+	 *            The first index of the range, inclusive.
+	 * @param to
+	 *            The last index of the range, exclusive.
+	 */
+	public IntSlice(IntBuffer buffer, int from, int to) {
+		this(null, buffer, from, to, null);
+	}
+
+	private IntSlice(int[] array, IntBuffer buffer, int from, int to, long[] bits) {
+		this.array = array;
+		this.buffer = buffer;
+		this.from = from;
+		this.to = to;
+		this.bits = bits;
+	}
+
+	/**
+	 * Creates a view on the whole given array.
+	 *
+	 * @param array
+	 *            The backing array.
+	 */
+	public IntSlice(int[] array) {
+		this(array, 0, array.length);
+	}
+
+	/**
+	 * Returns the given sorted collection as an IntSlice. IntSlices are returned
+	 * as they are, other collections are copied.
+	 *
+	 * @param values
+	 *            The values, in ascending order. May be <code>null</code>.
+	 * @return an IntSlice containing the given values.
+	 */
+	public static IntSlice of(Collection<Integer> values) {
+		if (values instanceof IntSlice) {
+			return (IntSlice) values;
+		} else if (values == null || values.isEmpty()) {
+			return EMPTY;
+		}
+		int[] result = new int[values.size()];
+		int index = 0;
+		for (int value : values) {
+			result[index++] = value;
+		}
+		return new IntSlice(result);
+	}
+
+	@Override
+	public int size() {
+		return to - from;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return to == from;
+	}
+
+	/**
+	 * Returns the value at the given position in this slice.
+	 *
+	 * @param index
+	 *            The position within the slice, starting at 0.
+	 * @return the value at the given position.
+	 */
+	public int getInt(int index) {
+		return value(from + index);
+	}
+
+	/**
+	 * Returns the value at the given index of the backing array or buffer.
+	 */
+	private int value(int index) {
+		return array != null ? array[index] : buffer.get(index);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given value is present in this slice.
+	 *
+	 * @param value
+	 *            The value to look for.
+	 * @return <code>true</code> if the given value is present.
+	 */
+	public boolean containsInt(int value) {
+		if (bits != null) {
+			return hasBit(bits, value);
+		}
+		return indexOf(value) >= 0;
+	}
+
+	private static boolean hasBit(long[] bits, int value) {
+		return value >= 0 && (value >>> 6) < bits.length && (bits[value >>> 6] & (1L << value)) != 0;
+	}
+
+	/**
+	 * Binary search for the given value.
+	 *
+	 * @param value
+	 *            The value to look for.
+	 * @return the position of the value within this slice, or
+	 *         <code>-(insertion point) - 1</code> if it is absent.
+	 */
+	public int indexOf(int value) {
+		int low = from;
+		int high = to - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midValue = value(mid);
+			if (midValue < value) {
+				low = mid + 1;
+			} else if (midValue > value) {
+				high = mid - 1;
+			} else {
+				return mid - from;
+			}
+		}
+		return -(low - from) - 1;
+	}
+
+	/**
+	 * Copies the values of this slice into a new array.
+	 *
+	 * @return a new array with the values of this slice.
+	 */
+	public int[] toIntArray() {
+		int[] result = new int[to - from];
+		if (array != null) {
+			System.arraycopy(array, from, result, 0, result.length);
+		} else {
+			IntBuffer source = buffer.duplicate();
+			source.position(from);
+			source.get(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the values present in both this slice and the given slice to the
+	 * start of the given array, in ascending order.
+	 *
+	 * @param other
+	 *            The slice to intersect with.
+	 * @param target
+	 *            The array to write the result to. It must be at least as long as
+	 *            the smaller of both slices.
+	 * @return the number of common values.
+	 */
+	public int intersect(IntSlice other, int[] target) {
+		if (other.bits != null && size() <= other.size()) {
+			return probe(other.bits, target);
+		} else if (bits != null) {
+			return other.probe(bits, target);
+		}
+		int i = from;
+		int j = other.from;
+		int count = 0;
+		while (i < to && j < other.to) {
+			int a = value(i);
+			int b = other.value(j);
+			if (a < b) {
+				i++;
+			} else if (a > b) {
+				j++;
+			} else {
+				target[count++] = a;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the values of this slice that are present in the given bitset to the
+	 * target array, or only counts them if the target is <code>null</code>.
+	 */
+	private int probe(long[] other, int[] target) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			int value = value(i);
+			if (hasBit(other, value)) {
+				if (target != null) {
+					target[count] = value;
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the values present in both this slice and the given slice, without
+	 * storing them.
+	 *
+	 * @param other
+	 *            The slice to intersect with.
+	 * @return the number of common values.
+	 */
+	public int intersectionSize(IntSlice other) {
+		if (bits != null && other.bits != null && Math.min(size(), other.size()) > bits.length) {
+			int count = 0;
+			for (int i = 0; i < Math.min(bits.length, other.bits.length); i++) {
+				count += Long.bitCount(bits[i] & other.bits[i]);
+			}
+			return count;
+		} else if (other.bits != null && size() <= other.size()) {
+			return probe(other.bits, null);
+		} else if (bits != null) {
+			return other.probe(bits, null);
+		}
+		int i = from;
+		int j = other.from;
+		int count = 0;
+		while (i < to && j < other.to) {
+			int a = value(i);
+			int b = other.value(j);
+			if (a < b) {
+				i++;
+			} else if (a > b) {
+				j++;
+			} else {
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the values present in both this slice and the given slice.
+	 *
+	 * @param other
+	 *            The slice to intersect with.
+	 * @return a new slice with the common values.
+	 */
+	public IntSlice intersection(IntSlice other) {
+		int[] result = new int[Math.min(size(), other.size())];
+		return new IntSlice(result, 0, intersect(other, result));
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && containsInt((Integer) o);
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			private int index = from;
+
+			@Override
+			public boolean hasNext() {
+				return index < to;
+			}
+
+			@Override
+			public Integer next() {
+				if (index >= to) {
+					throw new NoSuchElementException();
+				}
+				return value(index++);
+			}
+		};
+	}
+
+	@Override
+	public Comparator<? super Integer> comparator() {
+		return null;
+	}
+
+	@Override
+	public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+		if (fromElement > toElement) {
+			throw new IllegalArgumentException("fromElement " + fromElement + " > toElement " + toElement);
+		}
+		return new IntSlice(array, buffer, from + lowerBound(fromElement), from + lowerBound(toElement), null);
+	}
+
+	@Override
+	public SortedSet<Integer> headSet(Integer toElement) {
+		return new IntSlice(array, buffer, from, from + lowerBound(toElement), null);
+	}
+
+	@Override
+	public SortedSet<Integer> tailSet(Integer fromElement) {
+		return new IntSlice(array, buffer, from + lowerBound(fromElement), to, null);
+	}
+
+	@Override
+	public Integer first() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		return value(from);
+	}
+
+	@Override
+	public Integer last() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		return value(to - 1);
+	}
+
+	/**
+	 * Returns the position of the first value in this slice that is greater than
+	 * or equal to the given value.
+	 */
+	private int lowerBound(int value) {
+		int index = indexOf(value);
+		return index >= 0 ? index : -index - 1;
+	}
+}
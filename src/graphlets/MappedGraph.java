@@ -0,0 +1,777 @@
+package graphlets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.coGraphlet.CoGraph;
+import graphlets.coGraphlet.CoGraphletFactory;
+
+/**
+ * Read-only graph whose adjacency information lives in a memory-mapped file
+ * instead of on the heap, so that graphs larger than the heap can be counted
+ * and a graph only has to be built once for many runs.
+ *
+ * The file holds the graph in CSR form: every node has one row of sorted
+ * neighbours per edge type of its graphlets. Inverted neighbours are looked up
+ * in the row of the inverse edge type (e.g. <code>false</code> for
+ * <code>true</code> in directed graphs); only edge types without an inverse
+ * get extra rows. Row offsets are stored as longs, so the number of targets is
+ * not limited to the range of an int. The file is mapped in segments of at most
+ * 1 GiB.
+ *
+ * Neighbour sets returned by this graph are views on the mapping; only the
+ * rare rows that cross the border between two segments are copied. Membership
+ * tests ({@link #hasEdge}) search the mapping directly.
+ *
+ * The header records the type of the graph that was written, its order and
+ * size, the names of its edge types and, for coloured graphs, the number of
+ * colours, as plain fields. The graphlet factories are made again from the
+ * graph type when the file is opened, so the format does not depend on how
+ * these classes are serialized. The node names of graphs read from an edge
+ * list are stored after the adjacency arrays; they are only read when
+ * {@link #getNodeNames()} is first called, so opening a graph takes the same
+ * time with or without names. Files of older versions have to be converted
+ * again.
+ *
+ * An edge list can be converted once with {@link #main(String[])}, after which
+ * the converted file can be given to the user interface instead of the edge
+ * list.
+ *
+ * @param <T>
+ *            A datatype with which the graph represents its edge types.
+ */
+public class MappedGraph<T extends Comparable<T>> extends AbstractGraph<T> {
+
+	private static final long MAGIC = 0x53444752_41504831L; // "SDGRAPH1", stored little endian
+	private static final int VERSION = 3;
+	private static final int INT_SHIFT = 28;
+	private static final int LONG_SHIFT = 27;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final Header<T> header;
+	private final SortedMap<T, Integer> typeIndices;
+	private final LongBuffer[] offsets;
+	private final IntBuffer[] targets;
+	private final IntBuffer[] originalNodes;
+	private final IntBuffer[] nodes;
+	private final ByteBuffer names;
+
+	/**
+	 * Everything about a mapped graph except its adjacency arrays.
+	 */
+	private static class Header<T extends Comparable<T>> {
+		private String graphType;
+		private int order;
+		private int size;
+		private int colours;
+		private int rowsPerNode;
+		private long targets;
+		private List<T> edgeTypes;
+		private int[] invertedRows;
+		private boolean relabelled;
+		private double density;
+		private boolean complete;
+		private int nameCount;
+		private int nameBytes;
+		private AbstractGraphletFactory<? extends AbstractGraphlet<T>, T> graphletType;
+		private AbstractGraphletFactory<? extends AbstractGraphlet<T>, T> orbitType;
+
+		/**
+		 * Writes the fields of this header. The factories are not written.
+		 */
+		private byte[] toBytes() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeUTF(graphType);
+				out.writeInt(order);
+				out.writeInt(size);
+				out.writeInt(colours);
+				out.writeInt(rowsPerNode);
+				out.writeLong(targets);
+				out.writeInt(edgeTypes.size());
+				for (int i = 0; i < edgeTypes.size(); i++) {
+					out.writeUTF(String.valueOf(edgeTypes.get(i)));
+					out.writeInt(invertedRows[i]);
+				}
+				out.writeBoolean(relabelled);
+				out.writeDouble(density);
+				out.writeBoolean(complete);
+				out.writeInt(nameCount);
+				out.writeInt(nameBytes);
+			}
+			return bytes.toByteArray();
+		}
+
+		/**
+		 * Reads a header written by {@link #toBytes()} and makes the factories
+		 * of its graph type.
+		 */
+		private static <T extends Comparable<T>> Header<T> fromBytes(byte[] bytes) throws IOException {
+			Header<T> header = new Header<>();
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+				header.graphType = in.readUTF();
+				header.order = in.readInt();
+				header.size = in.readInt();
+				header.colours = in.readInt();
+				header.rowsPerNode = in.readInt();
+				header.targets = in.readLong();
+				header.graphletType = factoryOf(header.graphType, header.colours, false);
+				header.orbitType = factoryOf(header.graphType, header.colours, true);
+				List<T> knownTypes = header.graphletType.getEdgeTypes();
+				int types = in.readInt();
+				header.edgeTypes = new ArrayList<>(types);
+				header.invertedRows = new int[types];
+				for (int i = 0; i < types; i++) {
+					String name = in.readUTF();
+					for (T type : knownTypes) {
+						if (String.valueOf(type).equals(name)) {
+							header.edgeTypes.add(type);
+						}
+					}
+					if (header.edgeTypes.size() != i + 1) {
+						throw new IOException("Unknown edge type " + name + " for " + header.graphType);
+					}
+					header.invertedRows[i] = in.readInt();
+				}
+				header.relabelled = in.readBoolean();
+				header.density = in.readDouble();
+				header.complete = in.readBoolean();
+				header.nameCount = in.readInt();
+				header.nameBytes = in.readInt();
+			}
+			return header;
+		}
+	}
+
+	private MappedGraph(Header<T> header, LongBuffer[] offsets, IntBuffer[] targets, IntBuffer[] originalNodes,
+			IntBuffer[] nodes, ByteBuffer names) {
+		this.header = header;
+		this.order = header.order;
+		this.size = header.size;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.originalNodes = originalNodes;
+		this.nodes = nodes;
+		this.names = names;
+		typeIndices = new TreeMap<>();
+		for (int i = 0; i < header.edgeTypes.size(); i++) {
+			typeIndices.put(header.edgeTypes.get(i), i);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given file contains a mapped graph.
+	 *
+	 * @param file
+	 *            The file to check.
+	 * @return <code>true</code> if the file starts like a mapped graph file.
+	 */
+	public static boolean isMappedGraph(File file) {
+		if (!file.isFile() || file.length() < 8) {
+			return false;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			byte[] start = new byte[8];
+			raf.readFully(start);
+			return ByteBuffer.wrap(start).order(ByteOrder.LITTLE_ENDIAN).getLong() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the given graph to the given file in the mapped graph format. The
+	 * graph is frozen first if needed.
+	 *
+	 * @param graph
+	 *            The graph to be written.
+	 * @param file
+	 *            The file to write to. It is overwritten if it exists.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public static <T extends Comparable<T>> void write(AbstractGraph<T> graph, File file) throws IOException {
+		String graphType;
+		if (graph instanceof MappedGraph) {
+			graphType = ((MappedGraph<T>) graph).getGraphType();
+		} else if (graph instanceof AbstractCompactGraph) {
+			graphType = ((AbstractCompactGraph<T>) graph).getSourceType().getName();
+		} else {
+			graphType = graph.getClass().getName();
+		}
+		AbstractGraph<T> frozen = graph.freeze();
+		Header<T> header = new Header<>();
+		header.order = frozen.getOrder();
+		header.size = frozen.getSize();
+		header.edgeTypes = new ArrayList<>(frozen.getGraphletType(false).getEdgeTypes());
+		header.colours = graphType.equals(CoGraph.class.getName()) ? header.edgeTypes.size() : 0;
+		header.density = frozen.density();
+		header.complete = frozen.isComplete();
+		header.invertedRows = invertedRows(frozen, header.edgeTypes);
+		int rowsPerNode = header.edgeTypes.size();
+		for (int row : header.invertedRows) {
+			rowsPerNode = Math.max(rowsPerNode, row + 1);
+		}
+		header.rowsPerNode = rowsPerNode;
+		header.relabelled = false;
+		header.graphType = graphType;
+		NodeDictionary names = graph.getNodeNames();
+		if (names != null) {
+			long nameBytes = 0;
+			for (int i = 0; i < names.size(); i++) {
+				nameBytes += names.getBytes(i).length;
+			}
+			if (nameBytes > Integer.MAX_VALUE) {
+				throw new IOException("Node names are too long to be stored");
+			}
+			header.nameCount = names.size();
+			header.nameBytes = (int) nameBytes;
+		}
+		long targets = 0;
+		for (int node = 0; node < frozen.getOrder(); node++) {
+			header.relabelled |= frozen.getOriginalNode(node) != node;
+			for (int row = 0; row < rowsPerNode; row++) {
+				targets += rowOf(frozen, header, node, row).size();
+			}
+		}
+		header.targets = targets;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			raf.setLength(0);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			byte[] metadata = header.toBytes();
+			buffer.putLong(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(metadata.length);
+			for (byte b : metadata) {
+				buffer = ensure(channel, buffer, 1);
+				buffer.put(b);
+			}
+			while (buffer.position() % 8 != 0) {
+				buffer.put((byte) 0);
+			}
+			long offset = 0;
+			for (int node = 0; node < frozen.getOrder(); node++) {
+				for (int row = 0; row < rowsPerNode; row++) {
+					buffer = ensure(channel, buffer, 8);
+					buffer.putLong(offset);
+					offset += rowOf(frozen, header, node, row).size();
+				}
+			}
+			buffer = ensure(channel, buffer, 8);
+			buffer.putLong(offset);
+			for (int node = 0; node < frozen.getOrder(); node++) {
+				for (int row = 0; row < rowsPerNode; row++) {
+					IntSlice neighbours = rowOf(frozen, header, node, row);
+					for (int i = 0; i < neighbours.size(); i++) {
+						buffer = ensure(channel, buffer, 4);
+						buffer.putInt(neighbours.getInt(i));
+					}
+				}
+			}
+			if (header.relabelled) {
+				for (int node = 0; node < frozen.getOrder(); node++) {
+					buffer = ensure(channel, buffer, 4);
+					buffer.putInt(frozen.getOriginalNode(node));
+				}
+				for (int node = 0; node < frozen.getOrder(); node++) {
+					buffer = ensure(channel, buffer, 4);
+					buffer.putInt(frozen.getNode(node));
+				}
+			}
+			if (header.nameCount > 0) {
+				int start = 0;
+				for (int i = 0; i < header.nameCount; i++) {
+					buffer = ensure(channel, buffer, 4);
+					buffer.putInt(start);
+					start += names.getBytes(i).length;
+				}
+				buffer = ensure(channel, buffer, 4);
+				buffer.putInt(start);
+				for (int i = 0; i < header.nameCount; i++) {
+					for (byte b : names.getBytes(i)) {
+						buffer = ensure(channel, buffer, 1);
+						buffer.put(b);
+					}
+				}
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Writes the given graph to the given file and maps it back.
+	 *
+	 * @param graph
+	 *            The graph to be stored.
+	 * @param file
+	 *            The file to store the graph in.
+	 * @return the mapped version of the graph.
+	 * @throws IOException
+	 *             if the file can not be written or mapped.
+	 */
+	public static <T extends Comparable<T>> MappedGraph<T> of(AbstractGraph<T> graph, File file) throws IOException {
+		write(graph, file);
+		return open(file);
+	}
+
+	/**
+	 * Maps the graph in the given file.
+	 *
+	 * @param file
+	 *            A file written by {@link #write(AbstractGraph, File)}.
+	 * @return the graph in the file.
+	 * @throws IOException
+	 *             if the file can not be read or is not a mapped graph.
+	 */
+	public static <T extends Comparable<T>> MappedGraph<T> open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			ByteBuffer start = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			while (start.hasRemaining() && channel.read(start) >= 0)
+				;
+			start.flip();
+			if (start.remaining() < 16 || start.getLong() != MAGIC) {
+				throw new IOException(file + " is not a mapped graph");
+			}
+			int version = start.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported mapped graph version " + version + ", convert the graph again");
+			}
+			byte[] metadata = new byte[start.getInt()];
+			raf.seek(16);
+			raf.readFully(metadata);
+			Header<T> header = Header.fromBytes(metadata);
+			long position = (16 + metadata.length + 7) / 8 * 8;
+			long rows = (long) header.order * header.rowsPerNode + 1;
+			LongBuffer[] offsets = mapLongs(channel, position, rows);
+			position += rows * 8;
+			IntBuffer[] targets = mapInts(channel, position, header.targets);
+			position += header.targets * 4;
+			IntBuffer[] originalNodes = null;
+			IntBuffer[] nodes = null;
+			if (header.relabelled) {
+				originalNodes = mapInts(channel, position, header.order);
+				position += header.order * 4L;
+				nodes = mapInts(channel, position, header.order);
+				position += header.order * 4L;
+			}
+			ByteBuffer names = null;
+			if (header.nameCount > 0) {
+				names = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						(header.nameCount + 1) * 4L + header.nameBytes).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return new MappedGraph<>(header, offsets, targets, originalNodes, nodes, names);
+		}
+	}
+
+	/**
+	 * Converts an edge list to a mapped graph file. The nodes are renumbered by
+	 * decreasing degree before they are written.
+	 *
+	 * @param args
+	 *            The edge list, the class of the graph (e.g.
+	 *            <code>graphlets.simpleGraphlet.SimpleGraph</code>), the column
+	 *            with the edge types (0 if there is none), the minimal score of
+	 *            the edges (0 if there is none) and the file to write to.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) throws ClassNotFoundException, IOException {
+		if (args.length != 5) {
+			System.out.println("Usage: MappedGraph <edge list> <graph type> <column> <score> <output file>");
+			return;
+		}
+		convert(args[0], (Class<? extends AbstractGraph<Integer>>) Class.forName(args[1]), Integer.parseInt(args[2]),
+				Double.parseDouble(args[3]), new File(args[4]));
+	}
+
+	private static <U extends Comparable<U>> void convert(String edgeList, Class<? extends AbstractGraph<U>> type,
+			int column, double score, File output) throws IOException {
+		AbstractGraph<U> frozen;
+		if (score == 0) {
+			frozen = GraphletIO.readFrozenGraph(edgeList, type, column);
+		} else {
+			frozen = GraphletIO.readFrozenGraph(edgeList, type, column, score);
+		}
+		if (frozen == null) {
+			return;
+		}
+		if (frozen instanceof AbstractCompactGraph) {
+			frozen = ((AbstractCompactGraph<U>) frozen).relabelByDegree();
+		}
+		write(frozen, output);
+		System.out.println(frozen.getOrder() + " nodes, " + frozen.getSize() + " edges");
+	}
+
+	/**
+	 * Makes the graphlet factory of the given graph type, from an empty graph
+	 * of that type or, for coloured graphs, from the number of colours.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> AbstractGraphletFactory<? extends AbstractGraphlet<T>, T> factoryOf(
+			String graphType, int colours, boolean useOrbits) throws IOException {
+		if (graphType.equals(CoGraph.class.getName())) {
+			return (AbstractGraphletFactory<? extends AbstractGraphlet<T>, T>) (AbstractGraphletFactory<?, ?>) new CoGraphletFactory(
+					colours, useOrbits);
+		}
+		try {
+			AbstractGraph<T> graph = (AbstractGraph<T>) Class.forName(graphType).asSubclass(AbstractGraph.class)
+					.getDeclaredConstructor().newInstance();
+			return graph.getGraphletType(useOrbits);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IOException("Unknown graph type " + graphType, e);
+		}
+	}
+
+	/**
+	 * Flushes the buffer to the channel if it has less than the given number of
+	 * bytes left.
+	 */
+	private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+	private static LongBuffer[] mapLongs(FileChannel channel, long position, long count) throws IOException {
+		int segments = (int) ((count + (1L << LONG_SHIFT) - 1) >>> LONG_SHIFT);
+		LongBuffer[] result = new LongBuffer[segments];
+		for (int i = 0; i < segments; i++) {
+			long length = Math.min(1L << LONG_SHIFT, count - ((long) i << LONG_SHIFT));
+			result[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + ((long) i << LONG_SHIFT) * 8, length * 8)
+					.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		}
+		return result;
+	}
+
+	private static IntBuffer[] mapInts(FileChannel channel, long position, long count) throws IOException {
+		int segments = (int) ((count + (1L << INT_SHIFT) - 1) >>> INT_SHIFT);
+		IntBuffer[] result = new IntBuffer[segments];
+		for (int i = 0; i < segments; i++) {
+			long length = Math.min(1L << INT_SHIFT, count - ((long) i << INT_SHIFT));
+			result[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + ((long) i << INT_SHIFT) * 4, length * 4)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		}
+		return result;
+	}
+
+	/**
+	 * Finds, for every edge type, the row that holds its inverted neighbours: the
+	 * index of an edge type whose neighbours are the inverted neighbours for all
+	 * nodes, or a new row after the edge types if there is none.
+	 */
+	private static <T extends Comparable<T>> int[] invertedRows(AbstractGraph<T> graph, List<T> edgeTypes) {
+		int[] result = new int[edgeTypes.size()];
+		int extra = edgeTypes.size();
+		for (int i = 0; i < edgeTypes.size(); i++) {
+			result[i] = -1;
+			for (int j = 0; j < edgeTypes.size() && result[i] < 0; j++) {
+				boolean same = true;
+				for (int node = 0; node < graph.getOrder() && same; node++) {
+					same = graph.getInvertedNeighbourSlice(node, edgeTypes.get(i))
+							.equals(graph.getNeighbourSlice(node, edgeTypes.get(j)));
+				}
+				if (same) {
+					result[i] = j;
+				}
+			}
+			if (result[i] < 0) {
+				result[i] = extra++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the contents of the given row of the given node in a graph that is
+	 * being written.
+	 */
+	private static <T extends Comparable<T>> IntSlice rowOf(AbstractGraph<T> graph, Header<T> header, int node,
+			int row) {
+		int types = header.edgeTypes.size();
+		if (row < types) {
+			return graph.getNeighbourSlice(node, header.edgeTypes.get(row));
+		}
+		for (int i = 0; i < types; i++) {
+			if (header.invertedRows[i] == row) {
+				return graph.getInvertedNeighbourSlice(node, header.edgeTypes.get(i));
+			}
+		}
+		return IntSlice.EMPTY;
+	}
+
+	private long offset(long row) {
+		return offsets[(int) (row >>> LONG_SHIFT)].get((int) (row & ((1L << LONG_SHIFT) - 1)));
+	}
+
+	private int target(long index) {
+		return targets[(int) (index >>> INT_SHIFT)].get((int) (index & ((1L << INT_SHIFT) - 1)));
+	}
+
+	private static int get(IntBuffer[] buffers, int index) {
+		return buffers[index >>> INT_SHIFT].get(index & ((1 << INT_SHIFT) - 1));
+	}
+
+	/**
+	 * Returns the row holding the neighbours of the given node for the given edge
+	 * type, or -1 if the edge type is unknown.
+	 */
+	private long rowIndex(int node, T edgeType, boolean inverted) {
+		Integer index = edgeType == null ? null : typeIndices.get(edgeType);
+		if (index == null) {
+			return -1;
+		}
+		int row = inverted ? header.invertedRows[index] : index;
+		return (long) node * header.rowsPerNode + row;
+	}
+
+	/**
+	 * Returns a view on the given row, or a copy of it if it crosses the border
+	 * between two segments of the mapping.
+	 */
+	private IntSlice row(long row) {
+		if (row < 0) {
+			return IntSlice.EMPTY;
+		}
+		long start = offset(row);
+		int length = (int) (offset(row + 1) - start);
+		if (length == 0) {
+			return IntSlice.EMPTY;
+		}
+		int segment = (int) (start >>> INT_SHIFT);
+		if (segment == (int) ((start + length - 1) >>> INT_SHIFT)) {
+			int from = (int) (start & ((1L << INT_SHIFT) - 1));
+			return new IntSlice(targets[segment], from, from + length);
+		}
+		int[] result = new int[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = target(start + i);
+		}
+		return new IntSlice(result);
+	}
+
+	/**
+	 * Binary search for the given node in the given row.
+	 */
+	private boolean rowContains(long row, int node) {
+		long low = offset(row);
+		long high = offset(row + 1) - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			int value = target(mid);
+			if (value < node) {
+				low = mid + 1;
+			} else if (value > node) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public SortedSet<T> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<T> result = new TreeSet<>();
+		for (T type : header.edgeTypes) {
+			if (rowContains(rowIndex(node1, type, false), node2)) {
+				result.add(type);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, T edgeType) {
+		return row(rowIndex(node, edgeType, false));
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, T edgeType) {
+		return row(rowIndex(node, edgeType, true));
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, T edgeType) {
+		long row = rowIndex(node1, edgeType, false);
+		return row >= 0 && rowContains(row, node2);
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<T>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<T>> result = new TreeMap<>();
+		for (T type : header.edgeTypes) {
+			for (int neighbour : row(rowIndex(node, type, false))) {
+				SortedSet<T> edges = result.get(neighbour);
+				if (edges == null) {
+					edges = new TreeSet<>();
+					result.put(neighbour, edges);
+				}
+				edges.add(type);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the name of the class of the graph that was written to the file.
+	 *
+	 * @return the type of the graph in the file.
+	 */
+	public String getGraphType() {
+		return header.graphType;
+	}
+
+	/**
+	 * Returns the node names stored in the file, which are read in on the first
+	 * call.
+	 */
+	@Override
+	public synchronized NodeDictionary getNodeNames() {
+		if (nodeNames == null && names != null) {
+			int[] starts = new int[header.nameCount + 1];
+			for (int i = 0; i < starts.length; i++) {
+				starts[i] = names.getInt(i * 4);
+			}
+			byte[] bytes = new byte[header.nameBytes];
+			ByteBuffer source = names.duplicate();
+			source.position(starts.length * 4);
+			source.get(bytes);
+			nodeNames = new NodeDictionary(bytes, starts);
+		}
+		return nodeNames;
+	}
+
+	@Override
+	public int getOriginalNode(int node) {
+		return originalNodes == null ? node : get(originalNodes, node);
+	}
+
+	@Override
+	public int getNode(int originalNode) {
+		return nodes == null ? originalNode : get(nodes, originalNode);
+	}
+
+	/**
+	 * Mapped graphs are read-only already, so this returns the graph itself.
+	 */
+	@Override
+	public MappedGraph<T> freeze() {
+		return this;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return header.complete;
+	}
+
+	@Override
+	public double density() {
+		return header.density;
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<T>, T> getGraphletType(boolean useOrbits) {
+		return useOrbits ? header.orbitType : header.graphletType;
+	}
+
+	/**
+	 * Edge types are only parsed while a graph is being read, which never
+	 * happens for mapped graphs.
+	 */
+	@Override
+	public T getType(String pieces) {
+		throw new UnsupportedOperationException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void setNodeNames(NodeDictionary nodeNames) {
+		throw new UnsupportedOperationException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void addNode() {
+		throw new UnsupportedOperationException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	protected void addNodeInternal() {
+		throw new UnsupportedOperationException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void removeNode(int node) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	protected void removeNodeInternal(int node) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void addEdge(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	protected void addEdgeInternal(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdge(int node1, int node2) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	protected void removeEdgeInternal(int node1, int node2) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdge(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public void removeEdgeInternal(int node1, int node2, T edgeType) throws IllegalGraphActionException {
+		throw new IllegalGraphActionException("Mapped graphs can not be modified");
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < order; i++) {
+			sb.append(getNeighbours(i));
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+}
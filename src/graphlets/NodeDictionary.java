@@ -0,0 +1,243 @@
+package graphlets;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary that assigns consecutive ids to node names, in the order in which
+ * they are first added. The names are stored as UTF-8 bytes, back to back in a
+ * single array, and looked up through an open addressing hash table, so no
+ * String or boxed Integer is created per node.
+ */
+public class NodeDictionary {
+
+	private static final int EMPTY = -1;
+
+	private byte[] bytes;
+	private int used;
+	private int[] starts;
+	private int[] hashes;
+	private int size;
+	private int[] table;
+
+	/**
+	 * Creates an empty dictionary.
+	 */
+	public NodeDictionary() {
+		bytes = new byte[1024];
+		starts = new int[65];
+		hashes = new int[64];
+		table = new int[128];
+		Arrays.fill(table, EMPTY);
+	}
+
+	/**
+	 * Creates a copy of the given dictionary.
+	 *
+	 * @param other
+	 *            The dictionary to be copied.
+	 */
+	public NodeDictionary(NodeDictionary other) {
+		bytes = Arrays.copyOf(other.bytes, other.used);
+		used = other.used;
+		starts = other.starts.clone();
+		hashes = other.hashes.clone();
+		size = other.size;
+		table = other.table.clone();
+	}
+
+	/**
+	 * Creates a dictionary with the given names, stored back to back as UTF-8
+	 * bytes.
+	 *
+	 * @param bytes
+	 *            The names.
+	 * @param starts
+	 *            The start of every name in <code>bytes</code>, followed by the
+	 *            end of the last one.
+	 */
+	NodeDictionary(byte[] bytes, int[] starts) {
+		this.bytes = bytes;
+		size = starts.length - 1;
+		used = starts[size];
+		hashes = new int[Math.max(size, 1)];
+		this.starts = Arrays.copyOf(starts, hashes.length + 1);
+		for (int id = 0; id < size; id++) {
+			hashes[id] = hash(bytes, starts[id], starts[id + 1]);
+		}
+		int capacity = 128;
+		while (capacity < size * 2 + 2) {
+			capacity *= 2;
+		}
+		table = new int[capacity];
+		fillTable();
+	}
+
+	/**
+	 * Returns the number of names in this dictionary.
+	 *
+	 * @return the number of names.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the name with the given id.
+	 *
+	 * @param id
+	 *            The id of the name.
+	 * @return the name with the given id.
+	 */
+	public String getName(int id) {
+		return new String(bytes, starts[id], starts[id + 1] - starts[id], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of the name with the given id.
+	 */
+	byte[] getBytes(int id) {
+		return Arrays.copyOfRange(bytes, starts[id], starts[id + 1]);
+	}
+
+	/**
+	 * Returns the id of the given name, adding it to the dictionary if it is not
+	 * present yet.
+	 *
+	 * @param name
+	 *            The name.
+	 * @return the id of the name.
+	 */
+	public int intern(String name) {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		return intern(b, 0, b.length);
+	}
+
+	/**
+	 * Returns the id of the given name in this dictionary, or -1 if it is not
+	 * present.
+	 *
+	 * @param name
+	 *            The name.
+	 * @return the id of the name, or -1.
+	 */
+	public int get(String name) {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(b, 0, b.length);
+		return table[find(b, 0, b.length, hash)];
+	}
+
+	/**
+	 * Returns the id of the name with the given id in another dictionary, adding
+	 * it to this dictionary if it is not present yet.
+	 *
+	 * @param other
+	 *            The dictionary containing the name.
+	 * @param id
+	 *            The id of the name in the other dictionary.
+	 * @return the id of the name in this dictionary.
+	 */
+	public int intern(NodeDictionary other, int id) {
+		return intern(other.bytes, other.starts[id], other.starts[id + 1], other.hashes[id]);
+	}
+
+	/**
+	 * Returns the id of the name in the range <code>[from, to)</code> of the
+	 * given UTF-8 bytes, adding it to the dictionary if it is not present yet.
+	 *
+	 * @param source
+	 *            The array containing the name.
+	 * @param from
+	 *            The start of the name, inclusive.
+	 * @param to
+	 *            The end of the name, exclusive.
+	 * @return the id of the name.
+	 */
+	public int intern(byte[] source, int from, int to) {
+		return intern(source, from, to, hash(source, from, to));
+	}
+
+	private int intern(byte[] source, int from, int to, int hash) {
+		int slot = find(source, from, to, hash);
+		if (table[slot] != EMPTY) {
+			return table[slot];
+		}
+		int length = to - from;
+		if (used + length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(used + length, bytes.length * 2));
+		}
+		System.arraycopy(source, from, bytes, used, length);
+		used += length;
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, hashes.length * 2);
+			starts = Arrays.copyOf(starts, hashes.length + 1);
+		}
+		hashes[size] = hash;
+		starts[size + 1] = used;
+		table[slot] = size;
+		size++;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Returns the slot in the hash table that contains the given name, or the
+	 * empty slot where it should be added.
+	 */
+	private int find(byte[] source, int from, int to, int hash) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != EMPTY) {
+			int id = table[slot];
+			if (hashes[id] == hash && equals(id, source, from, to)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private boolean equals(int id, byte[] source, int from, int to) {
+		int start = starts[id];
+		if (starts[id + 1] - start != to - from) {
+			return false;
+		}
+		for (int i = from; i < to; i++) {
+			if (bytes[start++] != source[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		fillTable();
+	}
+
+	private void fillTable() {
+		Arrays.fill(table, EMPTY);
+		int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+		}
+	}
+
+	private static int hash(byte[] source, int from, int to) {
+		int h = 0;
+		for (int i = from; i < to; i++) {
+			h = 31 * h + source[i];
+		}
+		// spread the bits, as consecutive names often only differ at the end
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+}
@@ -0,0 +1,171 @@
+package graphlets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import graphletgeneration.AbstractGraphletFactory;
+
+/**
+ * Edge list that has been read once for a series of decreasing score
+ * thresholds, as made by
+ * {@link GraphletIO#readSweep(String, Class, int, double)}, or a matrix that
+ * has been read once, as made by
+ * {@link GraphletIO#readMatrixSweep(String, int, float)}.
+ *
+ * The edges are sorted by decreasing score and added to a single graph as the
+ * threshold goes down, so the graph for a threshold is built from the graph for
+ * the previous one by adding only the edges in between. All graphs of a sweep
+ * share the nodes and edge types of the lowest threshold: nodes whose edges all
+ * have a lower score are present without edges. Edges with the same score are
+ * added in the order of the file. The edges of an edge list are kept if their
+ * score is at least the threshold, the arcs of a matrix if their value is
+ * larger than the threshold, as in
+ * {@link GraphletIO#readMatrix(String, int, float)}.
+ *
+ * @param <U>
+ *            A datatype with which the graph represents its edge types.
+ */
+public class ThresholdSweep<U extends Comparable<U>> {
+
+	private final AbstractGraph<U> graph;
+	private int[] first = new int[1024];
+	private int[] second = new int[1024];
+	private float[] scores = new float[1024];
+	private List<U> types = new ArrayList<>();
+	private int count = 0;
+	private int added = 0;
+	private double threshold = Double.POSITIVE_INFINITY;
+	private final boolean strict;
+
+	ThresholdSweep(AbstractGraph<U> graph) {
+		this(graph, false);
+	}
+
+	/**
+	 * Creates a sweep that keeps the edges whose score is larger than the
+	 * threshold, converted to a float, if <code>strict</code> is set, and the
+	 * edges whose score is at least the threshold otherwise.
+	 */
+	ThresholdSweep(AbstractGraph<U> graph, boolean strict) {
+		this.graph = graph;
+		this.strict = strict;
+	}
+
+	/**
+	 * Adds an edge while the edge list is being read.
+	 */
+	void add(int node1, int node2, U type, float score) {
+		if (count == first.length) {
+			first = Arrays.copyOf(first, count * 2);
+			second = Arrays.copyOf(second, count * 2);
+			scores = Arrays.copyOf(scores, count * 2);
+		}
+		first[count] = node1;
+		second[count] = node2;
+		scores[count] = score;
+		types.add(type);
+		count++;
+	}
+
+	/**
+	 * Sorts the edges by decreasing score, keeping the order of the file for
+	 * equal scores. Every edge is sorted as a long with the score in the high
+	 * bits and its position in the low bits.
+	 */
+	void sort() {
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			int bits = Float.floatToIntBits(scores[i]);
+			// flip the magnitude of negative floats so the bits compare like the floats
+			bits ^= (bits >> 31) & 0x7fffffff;
+			keys[i] = (long) ~bits << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] sortedFirst = new int[count];
+		int[] sortedSecond = new int[count];
+		float[] sortedScores = new float[count];
+		List<U> sortedTypes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int edge = (int) keys[i];
+			sortedFirst[i] = first[edge];
+			sortedSecond[i] = second[edge];
+			sortedScores[i] = scores[edge];
+			sortedTypes.add(types.get(edge));
+		}
+		first = sortedFirst;
+		second = sortedSecond;
+		scores = sortedScores;
+		types = sortedTypes;
+	}
+
+	/**
+	 * Returns the graph with all edges whose score is at least, or for a
+	 * matrix larger than, the given threshold. The same graph is returned and extended on every call, so it
+	 * should be frozen or otherwise copied before the next call if it is still
+	 * needed.
+	 *
+	 * @param threshold
+	 *            The minimal score of the edges, at most the threshold of the
+	 *            previous call.
+	 * @return the graph for the given threshold.
+	 * @throws IllegalArgumentException
+	 *             if the threshold is higher than the one of the previous call.
+	 */
+	public AbstractGraph<U> getGraph(double threshold) {
+		if (threshold > this.threshold) {
+			throw new IllegalArgumentException(
+					"Thresholds must be decreasing, " + threshold + " comes after " + this.threshold);
+		}
+		this.threshold = threshold;
+		while (added < count && (strict ? scores[added] > (float) threshold : scores[added] >= threshold)) {
+			try {
+				graph.addEdge(first[added], second[added], types.get(added));
+			} catch (IllegalGraphActionException e) {
+			}
+			added++;
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns the graphlet type of the graph at the lowest threshold, which can
+	 * be used for every threshold of the sweep. Some graph types derive it from
+	 * their edges, like the number of colours of a coloured graph, so it is taken
+	 * from a compact graph with one edge of every edge type, made by the builder
+	 * of the graph type.
+	 *
+	 * @param useOrbits
+	 *            Whether orbits should be counted.
+	 * @return the graphlet type of the sweep.
+	 */
+	public AbstractGraphletFactory<? extends AbstractGraphlet<U>, U> getGraphletType(boolean useOrbits) {
+		AbstractCompactGraph.Builder<U> probe = graph.builder(graph.getOrder());
+		if (probe == null) {
+			return graph.getGraphletType(useOrbits);
+		}
+		Set<U> seen = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			if (!seen.contains(types.get(i))) {
+				try {
+					probe.addEdge(first[i], second[i], types.get(i));
+					seen.add(types.get(i));
+				} catch (IllegalGraphActionException e) {
+				}
+			}
+		}
+		return probe.build().getGraphletType(useOrbits);
+	}
+
+	/**
+	 * Returns the number of edges with a score of at least the lowest threshold,
+	 * including duplicates that are not added to the graph.
+	 *
+	 * @return the number of edges that were read.
+	 */
+	public int getEdgeCount() {
+		return count;
+	}
+}
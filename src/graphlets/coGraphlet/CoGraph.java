@@ -134,6 +134,12 @@ public class CoGraph extends AbstractGraph<Integer> {
 		return result;
 	}
 
+	@Override
+	public boolean hasEdge(int node1, int node2, Integer edgeType) {
+		Integer colour = neighbours.get(node1).get(node2);
+		return colour != null && colour.equals(edgeType);
+	}
+
 	@Override
 	public SortedSet<Integer> getInvertedNeighbours(int node, Integer edgeType) {
 		return getNeighbours(node,edgeType);
@@ -187,4 +193,23 @@ public class CoGraph extends AbstractGraph<Integer> {
 	public int getNColors() {
 		return largestEdge;
 	}
+
+	@Override
+	public CompactCoGraph freeze() {
+		return new CompactCoGraph(this);
+	}
+
+	@Override
+	public CompactCoGraph.Builder builder(int order) {
+		return new CompactCoGraph.Builder(order, types);
+	}
+
+	/**
+	 * Returns the mapping from edge type names to the colours used in this graph.
+	 * 
+	 * @return the colour of every known edge type name.
+	 */
+	Map<String, Integer> getTypeMap() {
+		return types;
+	}
 }
@@ -48,6 +48,7 @@ public class CoGraphlet extends AbstractGraphlet<Integer> {
 
 	@Override
 	public void swap(int a, int b) {
+		ready = false;
 		int aa = Math.min(a, b);
 		int bb = Math.max(a, b);
 		for (int i = 0; i < aa; i++) {
@@ -69,13 +70,23 @@ public class CoGraphlet extends AbstractGraphlet<Integer> {
 
 	@Override
 	public String representation() {
-		String s = "";
+		StringBuilder s = new StringBuilder(order * (order - 1) / 2);
 		for (int i = 0; i < order; i++) {
 			for (int j = 0; j < i; j++) {
-				s += matrix[i][j];
+				s.append(matrix[i][j]);
 			}
 		}
-		return s;
+		return s.toString();
+	}
+
+	@Override
+	protected char getEdgeCharacter(int node1, int node2) {
+		return (char) ('0' + matrix[Math.max(node1, node2)][Math.min(node1, node2)]);
+	}
+
+	@Override
+	protected boolean isDirected() {
+		return false;
 	}
 
 	@Override
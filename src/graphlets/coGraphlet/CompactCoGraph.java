@@ -0,0 +1,269 @@
+package graphlets.coGraphlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractCompactGraph;
+import graphlets.AbstractGraphlet;
+import graphlets.IllegalGraphActionException;
+import graphlets.IntSlice;
+
+/**
+ * Frozen, compact version of a CoGraph. The neighbours of every node are split
+ * into one row per colour, so the neighbours of a given colour are a slice of
+ * the targets array instead of a filtered copy of the node's whole
+ * neighbourhood.
+ *
+ * @see CoGraph
+ */
+public class CompactCoGraph extends AbstractCompactGraph<Integer> {
+
+	private final int nColors;
+	private final int rowsPerNode;
+	private final Map<String, Integer> types;
+
+	/**
+	 * Creates a compact copy of the given coloured graph.
+	 *
+	 * @param graph
+	 *            The graph to be copied.
+	 */
+	public CompactCoGraph(CoGraph graph) {
+		super(graph.getOrder(), graph.getSize(), rowsOf(graph));
+		nodeNames = copyOf(graph.getNodeNames());
+		nColors = graph.getNColors();
+		rowsPerNode = nColors + 1;
+		types = new HashMap<>(graph.getTypeMap());
+	}
+
+	private CompactCoGraph(int order, int size, int[] offsets, int[] targets, int nColors,
+			Map<String, Integer> types) {
+		super(order, size, offsets, targets);
+		this.nColors = nColors;
+		rowsPerNode = nColors + 1;
+		this.types = new HashMap<>(types);
+	}
+
+	private CompactCoGraph(CompactCoGraph graph, int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		super(graph, offsets, targets, originalNodes, hubDegree);
+		nColors = graph.nColors;
+		rowsPerNode = graph.rowsPerNode;
+		types = graph.types;
+	}
+
+	@Override
+	public Class<?> getSourceType() {
+		return CoGraph.class;
+	}
+
+	@Override
+	protected CompactCoGraph derive(int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		return new CompactCoGraph(this, offsets, targets, originalNodes, hubDegree);
+	}
+
+	/**
+	 * Builds a compact coloured graph directly from its edges. As in CoGraph, two
+	 * nodes are connected by at most one edge, so if an edge is added more than
+	 * once, only the colour it was first added with is kept.
+	 */
+	public static class Builder extends AbstractCompactGraph.Builder<Integer> {
+		private final Map<String, Integer> types;
+		private int[] first = new int[1024];
+		private int[] second = new int[1024];
+		private int[] colours = new int[1024];
+		private int count = 0;
+		private int largest = 0;
+
+		/**
+		 * Creates a builder for a graph with the given number of nodes.
+		 * 
+		 * @param order
+		 *            The number of nodes.
+		 * @param types
+		 *            The colour of every edge type name.
+		 */
+		public Builder(int order, Map<String, Integer> types) {
+			super(order);
+			this.types = types;
+		}
+
+		@Override
+		public void addEdge(int node1, int node2, Integer edgeType) throws IllegalGraphActionException {
+			checkNode(node1);
+			checkNode(node2);
+			if (edgeType == null || edgeType < 0) {
+				throw new IllegalGraphActionException("Invalid edge type " + edgeType);
+			}
+			// like CoGraph, count the colour even if the edge is refused
+			largest = Math.max(largest, edgeType);
+			if (node1 == node2) {
+				throw new IllegalGraphActionException("No self-loops allowed");
+			}
+			if (count == first.length) {
+				first = Arrays.copyOf(first, count * 2);
+				second = Arrays.copyOf(second, count * 2);
+				colours = Arrays.copyOf(colours, count * 2);
+			}
+			first[count] = Math.min(node1, node2);
+			second[count] = Math.max(node1, node2);
+			colours[count] = edgeType;
+			count++;
+		}
+
+		@Override
+		public CompactCoGraph build() {
+			int rowsPerNode = largest + 1;
+			// a stable counting sort on the first node, then a sort on the second
+			// node and the position, puts the first copy of every edge in front
+			int[] start = new int[order + 1];
+			for (int i = 0; i < count; i++) {
+				start[first[i] + 1]++;
+			}
+			for (int node = 0; node < order; node++) {
+				start[node + 1] += start[node];
+			}
+			long[] edges = new long[count];
+			int[] next = Arrays.copyOf(start, order);
+			for (int i = 0; i < count; i++) {
+				edges[next[first[i]]++] = (long) second[i] << 32 | i;
+			}
+			int size = 0;
+			for (int node = 0; node < order; node++) {
+				Arrays.sort(edges, start[node], start[node + 1]);
+				for (int i = start[node]; i < start[node + 1]; i++) {
+					if (i > start[node] && edges[i] >>> 32 == edges[i - 1] >>> 32) {
+						continue;
+					}
+					int neighbour = (int) (edges[i] >>> 32);
+					int colour = colours[(int) edges[i]];
+					addEntry(node * rowsPerNode + colour, neighbour);
+					addEntry(neighbour * rowsPerNode + colour, node);
+					size++;
+				}
+			}
+			int[] offsets = sortEntries(order * rowsPerNode);
+			return named(new CompactCoGraph(order, size, offsets, targets(), largest, types));
+		}
+	}
+
+	private static List<SortedSet<Integer>> rowsOf(CoGraph graph) {
+		int rowsPerNode = graph.getNColors() + 1;
+		List<SortedSet<Integer>> rows = new ArrayList<>(graph.getOrder() * rowsPerNode);
+		for (int i = 0; i < graph.getOrder(); i++) {
+			for (int colour = 0; colour < rowsPerNode; colour++) {
+				rows.add(new TreeSet<>());
+			}
+			SortedMap<Integer, SortedSet<Integer>> neighbours = graph.getNeighbours(i);
+			for (int neighbour : neighbours.keySet()) {
+				for (int colour : neighbours.get(neighbour)) {
+					rows.get(i * rowsPerNode + colour).add(neighbour);
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the row holding the neighbours of the given colour, or -1 if there
+	 * are no edges of that colour in this graph.
+	 */
+	private int rowOf(int node, Integer colour) {
+		if (colour == null || colour < 0 || colour > nColors) {
+			return -1;
+		}
+		return node * rowsPerNode + colour;
+	}
+
+	@Override
+	public Integer getType(String pieces) {
+		if (pieces == null || pieces.equals("")) {
+			return null;
+		}
+		return types.get(pieces);
+	}
+
+	@Override
+	public SortedSet<Integer> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<Integer> result = new TreeSet<>();
+		for (int colour = 0; colour <= nColors; colour++) {
+			if (rowContains(node1 * rowsPerNode + colour, node2)) {
+				result.add(colour);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, Integer edgeType) {
+		int row = rowOf(node, edgeType);
+		return row < 0 ? IntSlice.EMPTY : row(row);
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, Integer edgeType) {
+		int row = rowOf(node1, edgeType);
+		return row >= 0 && rowContains(row, node2);
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, Integer edgeType) {
+		return getNeighbours(node, edgeType);
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<Integer>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<Integer>> result = new TreeMap<>();
+		for (int colour = 0; colour <= nColors; colour++) {
+			for (int neighbour : row(node * rowsPerNode + colour)) {
+				SortedSet<Integer> s = new TreeSet<>();
+				s.add(colour);
+				result.put(neighbour, s);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return size == order * (order - 1) / 2;
+	}
+
+	@Override
+	public double density() {
+		return size * 2. / order / (order - 1);
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<Integer>, Integer> getGraphletType(boolean useOrbits) {
+		return new CoGraphletFactory(nColors, useOrbits);
+	}
+
+	/**
+	 * Returns the highest colour present in this graph.
+	 *
+	 * @return the number of colours.
+	 */
+	public int getNColors() {
+		return nColors;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < order; i++) {
+			sb.append(getNeighbours(i));
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,389 @@
+package graphlets.diGraphlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractCompactGraph;
+import graphlets.AbstractGraphlet;
+import graphlets.IllegalGraphActionException;
+import graphlets.IntSlice;
+
+/**
+ * Frozen, compact version of a DiGraph. Every node has three consecutive rows:
+ * the nodes with an arc to it, the nodes it has an arc to, and the nodes with
+ * arcs in both directions. The last row is precomputed so that asking for the
+ * neighbours with both edge types does not need an intersection.
+ *
+ * @see DiGraph
+ */
+public class CompactDiGraph extends AbstractCompactGraph<Boolean> {
+
+	private static final int IN = 0;
+	private static final int OUT = 1;
+	private static final int RECIPROCAL = 2;
+	private static final int ROWS = 3;
+
+	/**
+	 * Creates a compact copy of the given directed graph.
+	 *
+	 * @param graph
+	 *            The graph to be copied.
+	 */
+	public CompactDiGraph(DiGraph graph) {
+		super(graph.getOrder(), graph.getSize(), rowsOf(graph));
+		nodeNames = copyOf(graph.getNodeNames());
+	}
+
+	private CompactDiGraph(int order, int size, int[] offsets, int[] targets) {
+		super(order, size, offsets, targets);
+	}
+
+	private CompactDiGraph(CompactDiGraph graph, int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		super(graph, offsets, targets, originalNodes, hubDegree);
+	}
+
+	@Override
+	public Class<?> getSourceType() {
+		return DiGraph.class;
+	}
+
+	@Override
+	protected CompactDiGraph derive(int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		return new CompactDiGraph(this, offsets, targets, originalNodes, hubDegree);
+	}
+
+	/**
+	 * Builds a compact directed graph directly from its arcs, without a DiGraph
+	 * in between, so that memory use is proportional to the number of arcs. The
+	 * arcs are either added with {@link #addArc(int, int)}, ordered by source and
+	 * then by target as when scanning an adjacency matrix row by row, or with
+	 * {@link #addEdge(int, int, Boolean)} in any order, as when reading an edge
+	 * list. The two can not be mixed.
+	 */
+	public static class Builder extends AbstractCompactGraph.Builder<Boolean> {
+		private final int[] outOffsets;
+		private int[] outTargets = new int[1024];
+		private int arcs = 0;
+		private int source = 0;
+
+		/**
+		 * Creates a builder for a graph with the given number of nodes.
+		 * 
+		 * @param order
+		 *            The number of nodes.
+		 */
+		public Builder(int order) {
+			super(order);
+			outOffsets = new int[order + 1];
+		}
+
+		/**
+		 * Adds an arc to the graph.
+		 * 
+		 * @param from
+		 *            The source of the arc.
+		 * @param to
+		 *            The target of the arc.
+		 * @throws IllegalGraphActionException
+		 *             if a node does not exist, if the arc is a loop or if it has
+		 *             already been added.
+		 * @throws IllegalArgumentException
+		 *             if the arc comes before the previous one.
+		 * @throws IllegalStateException
+		 *             if arcs have been added with
+		 *             {@link #addEdge(int, int, Boolean)}.
+		 */
+		public void addArc(int from, int to) throws IllegalGraphActionException {
+			if (entryCount() > 0) {
+				throw new IllegalStateException("Arcs can not be added both in order and in any order");
+			}
+			if (from < 0 || from >= order) {
+				throw new IllegalGraphActionException("Node " + from + " not present");
+			}
+			if (to < 0 || to >= order) {
+				throw new IllegalGraphActionException("Node " + to + " not present");
+			}
+			if (from == to) {
+				throw new IllegalGraphActionException("No self-loops allowed");
+			}
+			if (from < source) {
+				throw new IllegalArgumentException("Arcs must be added in order of their source");
+			}
+			while (source < from) {
+				outOffsets[++source] = arcs;
+			}
+			if (arcs > outOffsets[from]) {
+				int last = outTargets[arcs - 1];
+				if (to == last) {
+					throw new IllegalGraphActionException("No double edges allowed");
+				} else if (to < last) {
+					throw new IllegalArgumentException("Arcs must be added in order of their target");
+				}
+			}
+			if (arcs == outTargets.length) {
+				outTargets = Arrays.copyOf(outTargets, arcs * 2);
+			}
+			outTargets[arcs++] = to;
+		}
+
+		/**
+		 * Adds an arc in any order. As in DiGraph, the arc goes from the first
+		 * node to the second one if the edge type is <code>true</code>, and the
+		 * other way around otherwise. Duplicate arcs are left out when the graph
+		 * is built.
+		 * 
+		 * @throws IllegalStateException
+		 *             if arcs have been added with {@link #addArc(int, int)}.
+		 */
+		@Override
+		public void addEdge(int node1, int node2, Boolean edgeType) throws IllegalGraphActionException {
+			if (arcs > 0) {
+				throw new IllegalStateException("Arcs can not be added both in order and in any order");
+			}
+			checkNode(node1);
+			checkNode(node2);
+			if (node1 == node2) {
+				throw new IllegalGraphActionException("No self-loops allowed");
+			}
+			if (edgeType) {
+				addEntry(node1, node2);
+			} else {
+				addEntry(node2, node1);
+			}
+		}
+
+		@Override
+		public CompactDiGraph build() {
+			if (entryCount() > 0) {
+				System.arraycopy(sortEntries(order), 0, outOffsets, 0, order + 1);
+				outTargets = targets();
+				arcs = outTargets.length;
+				source = order;
+			}
+			while (source < order) {
+				outOffsets[++source] = arcs;
+			}
+			// the incoming rows are the transpose of the outgoing ones
+			int[] inOffsets = new int[order + 1];
+			for (int i = 0; i < arcs; i++) {
+				inOffsets[outTargets[i] + 1]++;
+			}
+			for (int i = 0; i < order; i++) {
+				inOffsets[i + 1] += inOffsets[i];
+			}
+			int[] inTargets = new int[arcs];
+			int[] next = Arrays.copyOf(inOffsets, order);
+			for (int i = 0; i < order; i++) {
+				for (int j = outOffsets[i]; j < outOffsets[i + 1]; j++) {
+					inTargets[next[outTargets[j]]++] = i;
+				}
+			}
+			int reciprocal = 0;
+			for (int i = 0; i < order; i++) {
+				reciprocal += mergeRows(inTargets, inOffsets[i], inOffsets[i + 1], outTargets, outOffsets[i],
+						outOffsets[i + 1], null, 0);
+			}
+			int[] offsets = new int[order * ROWS + 1];
+			int[] targets = new int[arcs * 2 + reciprocal];
+			int length = 0;
+			for (int i = 0; i < order; i++) {
+				offsets[i * ROWS + IN] = length;
+				System.arraycopy(inTargets, inOffsets[i], targets, length, inOffsets[i + 1] - inOffsets[i]);
+				length += inOffsets[i + 1] - inOffsets[i];
+				offsets[i * ROWS + OUT] = length;
+				System.arraycopy(outTargets, outOffsets[i], targets, length, outOffsets[i + 1] - outOffsets[i]);
+				length += outOffsets[i + 1] - outOffsets[i];
+				offsets[i * ROWS + RECIPROCAL] = length;
+				length += mergeRows(inTargets, inOffsets[i], inOffsets[i + 1], outTargets, outOffsets[i],
+						outOffsets[i + 1], targets, length);
+			}
+			offsets[order * ROWS] = length;
+			return named(new CompactDiGraph(order, arcs, offsets, targets));
+		}
+
+		/**
+		 * Writes the common elements of two sorted ranges to the target array,
+		 * starting at the given position, unless the target is <code>null</code>.
+		 * 
+		 * @return the number of common elements.
+		 */
+		private static int mergeRows(int[] a, int fromA, int toA, int[] b, int fromB, int toB, int[] target,
+				int position) {
+			int count = 0;
+			while (fromA < toA && fromB < toB) {
+				if (a[fromA] < b[fromB]) {
+					fromA++;
+				} else if (a[fromA] > b[fromB]) {
+					fromB++;
+				} else {
+					if (target != null) {
+						target[position + count] = a[fromA];
+					}
+					count++;
+					fromA++;
+					fromB++;
+				}
+			}
+			return count;
+		}
+	}
+
+	private static List<Collection<Integer>> rowsOf(DiGraph graph) {
+		List<Collection<Integer>> rows = new ArrayList<>(graph.getOrder() * ROWS);
+		for (int i = 0; i < graph.getOrder(); i++) {
+			SortedSet<Integer> in = graph.getNeighbours(i, false);
+			SortedSet<Integer> out = graph.getNeighbours(i, true);
+			rows.add(in);
+			rows.add(out);
+			rows.add(intersection(in, out));
+		}
+		return rows;
+	}
+
+	/**
+	 * Merges two sorted sets into the sorted list of their common elements.
+	 */
+	private static List<Integer> intersection(SortedSet<Integer> a, SortedSet<Integer> b) {
+		List<Integer> result = new ArrayList<>();
+		Iterator<Integer> itA = a.iterator();
+		Iterator<Integer> itB = b.iterator();
+		if (itA.hasNext() && itB.hasNext()) {
+			int x = itA.next();
+			int y = itB.next();
+			while (true) {
+				if (x < y) {
+					if (!itA.hasNext())
+						break;
+					x = itA.next();
+				} else if (x > y) {
+					if (!itB.hasNext())
+						break;
+					y = itB.next();
+				} else {
+					result.add(x);
+					if (!itA.hasNext() || !itB.hasNext())
+						break;
+					x = itA.next();
+					y = itB.next();
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Boolean> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<Boolean> result = new TreeSet<>();
+		if (rowContains(node1 * ROWS + OUT, node2)) {
+			result.add(true);
+		}
+		if (rowContains(node1 * ROWS + IN, node2)) {
+			result.add(false);
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, Boolean condition) {
+		return row(node * ROWS + (condition ? OUT : IN));
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, Boolean condition) {
+		return rowContains(node1 * ROWS + (condition ? OUT : IN), node2);
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, Boolean condition) {
+		return getNeighbours(node, !condition);
+	}
+
+	/**
+	 * Returns the nodes connected to the given node by all of the given edge
+	 * types. Unlike the general implementation, this does not copy anything: both
+	 * directions together are answered by the precomputed reciprocal row.
+	 */
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, Collection<Boolean> edgeTypes) {
+		return getNeighbourSlice(node, edgeTypes);
+	}
+
+	@Override
+	public IntSlice getNeighbourSlice(int node, Collection<Boolean> edgeTypes) {
+		boolean out = edgeTypes.contains(true);
+		boolean in = edgeTypes.contains(false);
+		if (out && in) {
+			return row(node * ROWS + RECIPROCAL);
+		} else if (out) {
+			return row(node * ROWS + OUT);
+		} else if (in) {
+			return row(node * ROWS + IN);
+		} else {
+			return IntSlice.EMPTY;
+		}
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<Boolean>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<Boolean>> result = new TreeMap<>();
+		for (int neighbour : row(node * ROWS + OUT)) {
+			SortedSet<Boolean> edge = new TreeSet<>();
+			edge.add(true);
+			result.put(neighbour, edge);
+		}
+		for (int neighbour : row(node * ROWS + IN)) {
+			SortedSet<Boolean> edge = result.get(neighbour);
+			if (edge == null) {
+				edge = new TreeSet<>();
+				result.put(neighbour, edge);
+			}
+			edge.add(false);
+		}
+		return result;
+	}
+
+	@Override
+	public double density() {
+		return (double) size / (order * (order - 1.));
+	}
+
+	@Override
+	public boolean isComplete() {
+		return size == order * (order - 1);
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<Boolean>, Boolean> getGraphletType(boolean useOrbits) {
+		return new DiGraphletFactory(useOrbits);
+	}
+
+	@Override
+	public Boolean getType(String pieces) {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder arcs = new StringBuilder("[");
+		StringBuilder invertedArcs = new StringBuilder("[");
+		for (int i = 0; i < order; i++) {
+			if (i > 0) {
+				arcs.append(", ");
+				invertedArcs.append(", ");
+			}
+			arcs.append(row(i * ROWS + OUT));
+			invertedArcs.append(row(i * ROWS + IN));
+		}
+		return arcs.append("]\n").append(invertedArcs).append("]").toString();
+	}
+}
@@ -269,4 +269,14 @@ public class DiGraph extends AbstractGraph<Boolean> {
 		return true;
 	}
 
+	@Override
+	public CompactDiGraph freeze() {
+		return new CompactDiGraph(this);
+	}
+
+	@Override
+	public CompactDiGraph.Builder builder(int order) {
+		return new CompactDiGraph.Builder(order);
+	}
+
 }
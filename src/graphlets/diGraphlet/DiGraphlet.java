@@ -59,6 +59,7 @@ public class DiGraphlet extends AbstractGraphlet<Boolean> {
 
 	@Override
 	public void swap(int a, int b) {
+		ready = false;
 		int aa = Math.min(a, b);
 		int bb = Math.max(a, b);
 		for (Set<Integer> l : arcs) {
@@ -147,26 +148,36 @@ public class DiGraphlet extends AbstractGraphlet<Boolean> {
 
 	@Override
 	public String representation() {
-		String result = "";
+		StringBuilder result = new StringBuilder(order * (order - 1));
 		for (int i = 0; i < order; i++) {
 			int index = 0;
 			for (int j : arcs.get(i)) {
 				while (index < j) {
 					if (index != i)
-						result += 0;
+						result.append('0');
 					index++;
 				}
-				result += 1;
+				result.append('1');
 				index++;
 			}
 			while (index < order) {
 				if (index != i)
-					result += 0;
+					result.append('0');
 				index++;
 			}
 
 		}
-		return result;
+		return result.toString();
+	}
+
+	@Override
+	protected char getEdgeCharacter(int node1, int node2) {
+		return arcs.get(node1).contains(node2) ? '1' : '0';
+	}
+
+	@Override
+	protected boolean isDirected() {
+		return true;
 	}
 
 	@Override
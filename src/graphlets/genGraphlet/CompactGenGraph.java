@@ -0,0 +1,243 @@
+package graphlets.genGraphlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractCompactGraph;
+import graphlets.AbstractGraphlet;
+import graphlets.IllegalGraphActionException;
+
+/**
+ * Frozen, compact version of a GenGraph. Instead of two separate directed
+ * graphs, all signed arcs are kept in a single CSR structure. Every node has
+ * four consecutive rows, one for each edge type: outgoing plus arcs (1),
+ * incoming plus arcs (-1), outgoing minus arcs (2) and incoming minus arcs (-2).
+ *
+ * @see GenGraph
+ */
+public class CompactGenGraph extends AbstractCompactGraph<Byte> {
+
+	private static final byte[] TYPES = { 1, -1, 2, -2 };
+	private static final int ROWS = TYPES.length;
+
+	private final int plusSize;
+	private final int minusSize;
+
+	/**
+	 * Creates a compact copy of the given signed directed graph.
+	 *
+	 * @param graph
+	 *            The graph to be copied.
+	 */
+	public CompactGenGraph(GenGraph graph) {
+		super(graph.getOrder(), graph.getSize(), rowsOf(graph));
+		nodeNames = copyOf(graph.getNodeNames());
+		plusSize = arcCount((byte) 1);
+		minusSize = arcCount((byte) 2);
+	}
+
+	private CompactGenGraph(int order, int size, int[] offsets, int[] targets) {
+		super(order, size, offsets, targets);
+		plusSize = arcCount((byte) 1);
+		minusSize = arcCount((byte) 2);
+	}
+
+	private CompactGenGraph(CompactGenGraph graph, int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		super(graph, offsets, targets, originalNodes, hubDegree);
+		plusSize = graph.plusSize;
+		minusSize = graph.minusSize;
+	}
+
+	@Override
+	public Class<?> getSourceType() {
+		return GenGraph.class;
+	}
+
+	@Override
+	protected CompactGenGraph derive(int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		return new CompactGenGraph(this, offsets, targets, originalNodes, hubDegree);
+	}
+
+	/**
+	 * Returns the number of arcs of the given outgoing edge type.
+	 */
+	private int arcCount(byte type) {
+		int result = 0;
+		for (int i = 0; i < order; i++) {
+			result += rowSize(i * ROWS + tag(type));
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a compact signed directed graph directly from its arcs. Every arc
+	 * is stored in the outgoing row of its source and the incoming row of its
+	 * target.
+	 */
+	public static class Builder extends AbstractCompactGraph.Builder<Byte> {
+
+		/**
+		 * Creates a builder for a graph with the given number of nodes.
+		 * 
+		 * @param order
+		 *            The number of nodes.
+		 */
+		public Builder(int order) {
+			super(order);
+		}
+
+		/**
+		 * Adds an arc. As in GenGraph, an arc with a negative edge type goes from
+		 * the second node to the first one.
+		 */
+		@Override
+		public void addEdge(int node1, int node2, Byte edgeType) throws IllegalGraphActionException {
+			int t = edgeType == null ? -1 : tag(edgeType);
+			if (t < 0) {
+				throw new IllegalGraphActionException("Invalid edge type: " + edgeType);
+			}
+			checkNode(node1);
+			checkNode(node2);
+			if (node1 == node2) {
+				throw new IllegalGraphActionException("No self-loops allowed");
+			}
+			// the outgoing row of a sign comes right before the incoming one
+			int out = t & ~1;
+			int from = (t & 1) == 0 ? node1 : node2;
+			int to = (t & 1) == 0 ? node2 : node1;
+			addEntry(from * ROWS + out, to);
+			addEntry(to * ROWS + out + 1, from);
+		}
+
+		@Override
+		public CompactGenGraph build() {
+			int[] offsets = sortEntries(order * ROWS);
+			return named(new CompactGenGraph(order, entryCount() / 2, offsets, targets()));
+		}
+	}
+
+	private static List<SortedSet<Integer>> rowsOf(GenGraph graph) {
+		List<SortedSet<Integer>> rows = new ArrayList<>(graph.getOrder() * ROWS);
+		for (int i = 0; i < graph.getOrder(); i++) {
+			for (byte type : TYPES) {
+				rows.add(graph.getNeighbours(i, type));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the offset of the row for the given edge type within the rows of a
+	 * node, or -1 if the edge type is invalid. As in GenGraph, '+' and '-' can be
+	 * used for outgoing plus and minus arcs.
+	 */
+	private static int tag(byte type) {
+		switch (type) {
+		case '+':
+		case 1:
+			return 0;
+		case -1:
+			return 1;
+		case '-':
+		case 2:
+			return 2;
+		case -2:
+			return 3;
+		default:
+			return -1;
+		}
+	}
+
+	@Override
+	public SortedSet<Byte> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<Byte> result = new TreeSet<>();
+		for (int t = 0; t < ROWS; t++) {
+			if (rowContains(node1 * ROWS + t, node2)) {
+				result.add(TYPES[t]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, Byte condition) {
+		int t = tag(condition);
+		if (t < 0) {
+			return null;
+		}
+		return row(node * ROWS + t);
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, Byte condition) {
+		int t = tag(condition);
+		return t >= 0 && rowContains(node1 * ROWS + t, node2);
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, Byte condition) {
+		int t = tag(condition);
+		if (t < 0) {
+			return null;
+		}
+		return getNeighbours(node, (byte) -TYPES[t]);
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<Byte>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<Byte>> result = new TreeMap<>();
+		for (int t = 0; t < ROWS; t++) {
+			for (int neighbour : row(node * ROWS + t)) {
+				SortedSet<Byte> edges = result.get(neighbour);
+				if (edges == null) {
+					edges = new TreeSet<>();
+					result.put(neighbour, edges);
+				}
+				edges.add(TYPES[t]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double density() {
+		return (plusSize + minusSize) / (order * (order - 1.)) / 2;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return plusSize == order * (order - 1) && minusSize == order * (order - 1);
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<Byte>, Byte> getGraphletType(boolean useOrbits) {
+		return new GenGraphletFactory(useOrbits);
+	}
+
+	@Override
+	public Byte getType(String pieces) {
+		return (byte) pieces.charAt(0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder plus = new StringBuilder("+\n[");
+		StringBuilder minus = new StringBuilder("-\n[");
+		for (int i = 0; i < order; i++) {
+			if (i > 0) {
+				plus.append(", ");
+				minus.append(", ");
+			}
+			plus.append(row(i * ROWS + tag((byte) 1)));
+			minus.append(row(i * ROWS + tag((byte) 2)));
+		}
+		return plus.append("]\n").append(minus).append("]").toString();
+	}
+}
@@ -223,4 +223,14 @@ public class GenGraph extends AbstractGraph<Byte> {
 			return (byte) pieces.charAt(0);
 		
 	}
+
+	@Override
+	public CompactGenGraph freeze() {
+		return new CompactGenGraph(this);
+	}
+
+	@Override
+	public CompactGenGraph.Builder builder(int order) {
+		return new CompactGenGraph.Builder(order);
+	}
 }
@@ -76,6 +76,7 @@ public class GenGraphlet extends AbstractGraphlet<Byte> {
 
 	@Override
 	public void swap(int a, int b) {
+		ready = false;
 		for (int i = 0; i < order; i++) {
 			byte reserve = matrix[a][i];
 			matrix[a][i] = matrix[b][i];
@@ -91,24 +92,41 @@ public class GenGraphlet extends AbstractGraphlet<Byte> {
 
 	@Override
 	public String representation() {
-		String result = "";
+		StringBuilder result = new StringBuilder(order * (order - 1));
 		for (int i = 0; i < order; i++) {
 			for (int j = 0; j < order; j++) {
 				if (i != j) {
 					switch (matrix[i][j]) {
 					case 1:
-						result += '+';
+						result.append('+');
 						break;
 					case 2:
-						result += '-';
+						result.append('-');
 						break;
 					case 0:
-						result += '0';
+						result.append('0');
 					}
 				}
 			}
 		}
-		return result;
+		return result.toString();
+	}
+
+	@Override
+	protected char getEdgeCharacter(int node1, int node2) {
+		switch (matrix[node1][node2]) {
+		case 1:
+			return '+';
+		case 2:
+			return '-';
+		default:
+			return '0';
+		}
+	}
+
+	@Override
+	protected boolean isDirected() {
+		return true;
 	}
 
 	@Override
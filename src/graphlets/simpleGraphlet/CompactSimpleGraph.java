@@ -0,0 +1,163 @@
+package graphlets.simpleGraphlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractCompactGraph;
+import graphlets.AbstractGraphlet;
+import graphlets.IllegalGraphActionException;
+
+/**
+ * Frozen, compact version of a SimpleGraph. Every node has a single row
+ * containing its sorted neighbours.
+ *
+ * @see SimpleGraph
+ */
+public class CompactSimpleGraph extends AbstractCompactGraph<Boolean> {
+
+	/**
+	 * Creates a compact copy of the given simple graph.
+	 *
+	 * @param graph
+	 *            The graph to be copied.
+	 */
+	public CompactSimpleGraph(SimpleGraph graph) {
+		super(graph.getOrder(), graph.getSize(), rowsOf(graph));
+		nodeNames = copyOf(graph.getNodeNames());
+	}
+
+	private CompactSimpleGraph(int order, int size, int[] offsets, int[] targets) {
+		super(order, size, offsets, targets);
+	}
+
+	private CompactSimpleGraph(CompactSimpleGraph graph, int[] offsets, int[] targets, int[] originalNodes,
+			int hubDegree) {
+		super(graph, offsets, targets, originalNodes, hubDegree);
+	}
+
+	@Override
+	public Class<?> getSourceType() {
+		return SimpleGraph.class;
+	}
+
+	@Override
+	protected CompactSimpleGraph derive(int[] offsets, int[] targets, int[] originalNodes, int hubDegree) {
+		return new CompactSimpleGraph(this, offsets, targets, originalNodes, hubDegree);
+	}
+
+	/**
+	 * Builds a compact simple graph directly from its edges. Every edge is
+	 * stored in the rows of both of its nodes.
+	 */
+	public static class Builder extends AbstractCompactGraph.Builder<Boolean> {
+
+		/**
+		 * Creates a builder for a graph with the given number of nodes.
+		 * 
+		 * @param order
+		 *            The number of nodes.
+		 */
+		public Builder(int order) {
+			super(order);
+		}
+
+		@Override
+		public void addEdge(int node1, int node2, Boolean edgeType) throws IllegalGraphActionException {
+			checkNode(node1);
+			checkNode(node2);
+			if (node1 == node2) {
+				throw new IllegalGraphActionException("No self-loops allowed");
+			}
+			addEntry(node1, node2);
+			addEntry(node2, node1);
+		}
+
+		@Override
+		public CompactSimpleGraph build() {
+			int[] offsets = sortEntries(order);
+			return named(new CompactSimpleGraph(order, entryCount() / 2, offsets, targets()));
+		}
+	}
+
+	private static List<SortedSet<Integer>> rowsOf(SimpleGraph graph) {
+		List<SortedSet<Integer>> rows = new ArrayList<>(graph.getOrder());
+		for (int i = 0; i < graph.getOrder(); i++) {
+			rows.add(graph.getNeighbours(i, true));
+		}
+		return rows;
+	}
+
+	@Override
+	public SortedSet<Boolean> getEdges(int node1, int node2) throws IllegalGraphActionException {
+		checkNode(node1);
+		checkNode(node2);
+		SortedSet<Boolean> result = new TreeSet<>();
+		if (rowContains(node1, node2)) {
+			result.add(true);
+		}
+		return result;
+	}
+
+	@Override
+	public SortedSet<Integer> getNeighbours(int node, Boolean edgeType) {
+		return row(node);
+	}
+
+	@Override
+	public boolean hasEdge(int node1, int node2, Boolean edgeType) {
+		return rowContains(node1, node2);
+	}
+
+	@Override
+	public SortedSet<Integer> getInvertedNeighbours(int node, Boolean edgeType) {
+		return row(node);
+	}
+
+	@Override
+	public SortedMap<Integer, SortedSet<Boolean>> getNeighbours(int node) {
+		SortedMap<Integer, SortedSet<Boolean>> result = new TreeMap<>();
+		SortedSet<Boolean> edge = new TreeSet<>();
+		edge.add(true);
+		for (int neighbour : row(node)) {
+			result.put(neighbour, edge);
+		}
+		return result;
+	}
+
+	@Override
+	public double density() {
+		return size * 2. / (order - 1.) / order;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return size * 2 == (order - 1) * order;
+	}
+
+	@Override
+	public AbstractGraphletFactory<? extends AbstractGraphlet<Boolean>, Boolean> getGraphletType(boolean useOrbits) {
+		return new SimpleGraphletFactory(useOrbits);
+	}
+
+	@Override
+	public Boolean getType(String pieces) {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < order; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(row(i));
+		}
+		return sb.append("]").toString();
+	}
+}
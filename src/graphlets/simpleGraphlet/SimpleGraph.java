@@ -183,4 +183,14 @@ public class SimpleGraph extends AbstractGraph<Boolean> {
 	public Boolean getType(String pieces) {
 		return true;
 	}
+
+	@Override
+	public CompactSimpleGraph freeze() {
+		return new CompactSimpleGraph(this);
+	}
+
+	@Override
+	public CompactSimpleGraph.Builder builder(int order) {
+		return new CompactSimpleGraph.Builder(order);
+	}
 }
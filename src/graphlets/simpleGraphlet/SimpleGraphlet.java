@@ -65,6 +65,7 @@ public class SimpleGraphlet extends AbstractGraphlet<Boolean> {
 
 	@Override
 	public void swap(int a, int b) {
+		ready = false;
 		for (Edge e : edges) {
 			e.swap(a, b);
 		}
@@ -79,13 +80,27 @@ public class SimpleGraphlet extends AbstractGraphlet<Boolean> {
 		for (Edge e : edges) {
 			matrix[e.b][e.a] = 1;
 		}
-		String result = "";
+		StringBuilder result = new StringBuilder(order * (order - 1) / 2);
 		for (int i = 0; i < order; i++) {
 			for (int j = 0; j < i; j++) {
-				result += matrix[i][j];
+				result.append(matrix[i][j]);
 			}
 		}
-		return result;
+		return result.toString();
+	}
+
+	@Override
+	protected char getEdgeCharacter(int node1, int node2) {
+		try {
+			return edges.contains(new Edge(node1, node2)) ? '1' : '0';
+		} catch (IllegalGraphActionException e) {
+			return '0';
+		}
+	}
+
+	@Override
+	protected boolean isDirected() {
+		return false;
 	}
 
 	@Override
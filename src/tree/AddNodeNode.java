@@ -18,6 +18,7 @@ public class AddNodeNode<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 	private Map<TreeNode<T,U>,Integer> reverseChildren2;
 	private int symmetryFactor;
 	private List<Integer> canonicalAutomorphism;
+	private int id = -1;
 	
 	public int getSymmetryFactor() {
 		return symmetryFactor;
@@ -28,12 +29,20 @@ public class AddNodeNode<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 	}
 
 	public AddNodeNode(TreeNode<T,U> parent,/*String representation*/ T graphlet) {
-		super(parent, graphlet.canonical());
-		symmetryFactor = graphlet.getSymmetry();
+		this(parent, graphlet.canonical(), graphlet.getSymmetry(), graphlet.getCanonicalAutomorphism());
+	}
+
+	/**
+	 * Creates a node from its stored fields, as read by {@link TreeIO}.
+	 */
+	AddNodeNode(TreeNode<T, U> parent, String representation, int symmetryFactor,
+			List<Integer> canonicalAutomorphism) {
+		super(parent, representation);
+		this.symmetryFactor = symmetryFactor;
 		children = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
 		reverseChildren1=new HashMap<>();
 		reverseChildren2 = new HashMap<>();
-		canonicalAutomorphism = graphlet.getCanonicalAutomorphism();
+		this.canonicalAutomorphism = canonicalAutomorphism;
 	}
 	
 	
@@ -41,6 +50,21 @@ public class AddNodeNode<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 		return canonicalAutomorphism;
 	}
 
+	/**
+	 * Returns the number of this node's graphlet or orbit in its tree.
+	 * 
+	 * @return the number of the representation, or -1 if the tree's nodes have
+	 *         not been numbered yet.
+	 * @see GraphletTree#assignIds()
+	 */
+	public int getId() {
+		return id;
+	}
+
+	void setId(int id) {
+		this.id = id;
+	}
+
 	public SortedMap<Integer, SortedMap<U, TreeNode<T, U>>> getChildrenMap(){
 		return children;
 	}
@@ -49,7 +49,15 @@ public class ConditionNode<T extends AbstractGraphlet<U>, U extends Comparable<U
 	 * @param tree
 	 */
 	ConditionNode(TreeNode<T, U> parent, int first, int second) {
-		super(parent, parent.representation);
+		this(parent, parent.representation, first, second);
+	}
+
+	/**
+	 * Creates a ConditionNode with the given representation, as read by
+	 * {@link TreeIO}.
+	 */
+	ConditionNode(TreeNode<T, U> parent, String representation, int first, int second) {
+		super(parent, representation);
 		this.first = first;
 		this.second = second;
 	}
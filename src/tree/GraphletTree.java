@@ -1,11 +1,19 @@
 package tree;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import graphletgeneration.AbstractGraphletFactory;
 import graphlets.AbstractGraphlet;
+import graphlets.CanonicalComparator;
 
 public class GraphletTree<T extends AbstractGraphlet<U>, U extends Comparable<U>> implements Serializable{
 	
@@ -19,6 +27,8 @@ public class GraphletTree<T extends AbstractGraphlet<U>, U extends Comparable<U>
 	private int order;
 	private boolean isOrbitRep;
 	private AbstractGraphletFactory<T,U> factory;
+	private transient List<String> keys;
+	private transient Map<String, Integer> ids;
 
 	
 	public GraphletTree(AbstractGraphletFactory<T,U> gf, int order) {
@@ -65,5 +75,69 @@ public class GraphletTree<T extends AbstractGraphlet<U>, U extends Comparable<U>
 		root.print();
 	}
 
+	/**
+	 * Numbers the graphlets or orbits of the AddNodeNodes of this tree from 0,
+	 * in canonical order, and gives every AddNodeNode the number of its
+	 * representation. Tree walkers count into arrays indexed by these numbers.
+	 * This is done when the tree is generated or read; it must be done again if
+	 * the tree is changed afterwards.
+	 */
+	public synchronized void assignIds() {
+		SortedSet<String> representations = new TreeSet<>(new CanonicalComparator());
+		List<AddNodeNode<T, U>> nodes = new ArrayList<>();
+		Deque<TreeNode<T, U>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			TreeNode<T, U> node = stack.pop();
+			if (node instanceof AddNodeNode) {
+				nodes.add((AddNodeNode<T, U>) node);
+				representations.add(node.getRepresentation());
+			}
+			for (TreeNode<T, U> child : node.getChildren()) {
+				stack.push(child);
+			}
+		}
+		ids = new HashMap<>();
+		for (String representation : representations) {
+			ids.put(representation, ids.size());
+		}
+		for (AddNodeNode<T, U> node : nodes) {
+			node.setId(ids.get(node.getRepresentation()));
+		}
+		keys = Collections.unmodifiableList(new ArrayList<>(representations));
+	}
+
+	/**
+	 * Returns the graphlets or orbits of the AddNodeNodes of this tree, indexed
+	 * by their numbers.
+	 * 
+	 * @return the representations of the tree's graphlets or orbits, in
+	 *         canonical order.
+	 * @see #assignIds()
+	 */
+	public synchronized List<String> getKeys() {
+		if (keys == null) {
+			assignIds();
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the number of the given graphlet or orbit in this tree.
+	 * 
+	 * @param representation
+	 *            The canonical representation of a graphlet or orbit.
+	 * @return the number of the representation, or -1 if no AddNodeNode of
+	 *         this tree has it.
+	 * @see #assignIds()
+	 */
+	public synchronized int getId(String representation) {
+		if (ids == null) {
+			assignIds();
+		}
+		Integer id = ids.get(representation);
+		return id == null ? -1 : id;
+	}
+
 	
 }
@@ -5,7 +5,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.Stack;
-import java.util.TreeSet;
 
 import graphletgeneration.AbstractGraphletFactory;
 import graphlets.AbstractGraphlet;
@@ -38,7 +37,10 @@ public class TreeGenerator<T extends AbstractGraphlet<U>, U extends Comparable<U
 	private Stack<AddEdgeNode<T, U>> currentEdges;
 	private Stack<T> graphlets;
 	private int order;
-	private SortedSet<String> usedGraphlets;
+	// The codes of the graphlets found so far, or their canonical
+	// representations if the graphlets are too large to be packed.
+	private Set<Object> usedGraphlets;
+	private boolean useCodes;
 	private Set<TreeNode<T, U>> toPrune;
 	private AbstractGraphletFactory<T,U> factory;
 	
@@ -65,7 +67,8 @@ public class TreeGenerator<T extends AbstractGraphlet<U>, U extends Comparable<U
 		graphlets = new Stack<T>();
 		graphlets.push(f.oneNodeGraphlet());
 		edgeTypes = tree.getEdgeTypes();
-		usedGraphlets = new TreeSet<>();
+		usedGraphlets = new HashSet<>();
+		useCodes = f.fitsCode(order);
 		this.order = order;
 		toPrune = new HashSet<>();
 	}
@@ -80,6 +83,7 @@ public class TreeGenerator<T extends AbstractGraphlet<U>, U extends Comparable<U
 		for (TreeNode<T, U> tn : toPrune) {
 			tn.prune();
 		}
+		tree.assignIds();
 		return tree;
 	}
 //	
@@ -123,7 +127,8 @@ public class TreeGenerator<T extends AbstractGraphlet<U>, U extends Comparable<U
 	private void expandNode() {
 		try {
 			T graphlet = factory.copy(graphlets.peek());
-			if (!usedGraphlets.add(graphlet.canonical())) {
+			Object key = useCodes ? factory.canonicalCode(graphlet) : graphlet.canonical();
+			if (!usedGraphlets.add(key)) {
 				// This graphlet has been found already, prune the current node.
 				toPrune.add(currentNodes.peek());
 				return;
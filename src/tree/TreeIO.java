@@ -0,0 +1,323 @@
+package tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractGraphlet;
+
+/**
+ * Flat binary format for graphlet trees.
+ *
+ * The tree nodes are numbered breadth first, starting with the root, and
+ * written one after the other: a tag with the kind of node, the index of its
+ * parent and of its representation in a table of strings, followed by its
+ * fields and the indices of its children. Add-node nodes store their symmetry
+ * factor and canonical automorphism; edge types are stored as indices in the
+ * tree's edge types. The indices of the leaves come last.
+ *
+ * Neither writing nor reading recurses, so the depth of the tree does not
+ * matter, and nothing but the tree's own fields is stored. The graphlet factory
+ * is not stored either: it is given when reading and checked against the
+ * factory class, order, orbit setting and edge types of the file.
+ */
+public class TreeIO {
+
+	private static final int MAGIC = 0x53445452; // "SDTR"
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final byte ADD_NODE = 0;
+	private static final byte ADD_EDGE = 1;
+	private static final byte CONDITION = 2;
+
+	private TreeIO() {
+	}
+
+	/**
+	 * Writes the given tree to the given file.
+	 *
+	 * @param tree
+	 *            The tree to be written.
+	 * @param file
+	 *            The file to write to.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void write(GraphletTree<T, U> tree,
+			File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+			write(tree, out);
+		}
+	}
+
+	/**
+	 * Writes the given tree to the given output.
+	 *
+	 * @param tree
+	 *            The tree to be written.
+	 * @param out
+	 *            The output to write to.
+	 * @throws IOException
+	 *             if the output can not be written.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void write(GraphletTree<T, U> tree,
+			DataOutput out) throws IOException {
+		List<U> edgeTypes = tree.getEdgeTypes();
+		List<TreeNode<T, U>> nodes = new ArrayList<>();
+		Map<TreeNode<T, U>, Integer> ids = new IdentityHashMap<>();
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		nodes.add(tree.getRoot());
+		ids.put(tree.getRoot(), 0);
+		for (int i = 0; i < nodes.size(); i++) {
+			TreeNode<T, U> node = nodes.get(i);
+			if (!strings.containsKey(node.getRepresentation())) {
+				strings.put(node.getRepresentation(), strings.size());
+			}
+			for (TreeNode<T, U> child : childrenOf(node)) {
+				if (child != null && !ids.containsKey(child)) {
+					ids.put(child, nodes.size());
+					nodes.add(child);
+				}
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(tree.getFactory().getClass().getName());
+		out.writeInt(tree.getOrder());
+		out.writeBoolean(tree.isOrbitRep());
+		out.writeInt(edgeTypes.size());
+		for (U type : edgeTypes) {
+			out.writeUTF(String.valueOf(type));
+		}
+		out.writeInt(strings.size());
+		for (String s : strings.keySet()) {
+			out.writeUTF(s);
+		}
+		out.writeInt(nodes.size());
+		for (TreeNode<T, U> node : nodes) {
+			out.writeInt(node.getParent() == null ? -1 : idOf(ids, node.getParent()));
+			out.writeInt(strings.get(node.getRepresentation()));
+			if (node instanceof AddNodeNode) {
+				AddNodeNode<T, U> addNode = (AddNodeNode<T, U>) node;
+				out.writeByte(ADD_NODE);
+				out.writeInt(addNode.getSymmetryFactor());
+				List<Integer> automorphism = addNode.getCanonicalAutomorphism();
+				out.writeInt(automorphism == null ? -1 : automorphism.size());
+				if (automorphism != null) {
+					for (int i : automorphism) {
+						out.writeInt(i);
+					}
+				}
+				int children = 0;
+				for (SortedMap<U, TreeNode<T, U>> byType : addNode.getChildrenMap().values()) {
+					children += byType.size();
+				}
+				out.writeInt(children);
+				for (Map.Entry<Integer, SortedMap<U, TreeNode<T, U>>> byNode : addNode.getChildrenMap().entrySet()) {
+					for (Map.Entry<U, TreeNode<T, U>> child : byNode.getValue().entrySet()) {
+						out.writeInt(byNode.getKey());
+						out.writeInt(child.getKey() == null ? -1 : edgeTypes.indexOf(child.getKey()));
+						out.writeInt(idOf(ids, child.getValue()));
+					}
+				}
+			} else if (node instanceof AddEdgeNode) {
+				AddEdgeNode<T, U> addEdge = (AddEdgeNode<T, U>) node;
+				out.writeByte(ADD_EDGE);
+				out.writeInt(addEdge.getNode());
+				out.writeInt(addEdge.getTypeIndex());
+				out.writeInt(idOf(ids, addEdge.getChild(false)));
+				out.writeInt(idOf(ids, addEdge.getChild(true)));
+			} else {
+				ConditionNode<T, U> condition = (ConditionNode<T, U>) node;
+				out.writeByte(CONDITION);
+				out.writeInt(condition.getFirst());
+				out.writeInt(condition.getSecond());
+				out.writeInt(idOf(ids, condition.getChild()));
+			}
+		}
+		out.writeInt(tree.getLeaves().size());
+		for (AddNodeNode<T, U> leaf : tree.getLeaves()) {
+			out.writeInt(idOf(ids, leaf));
+		}
+	}
+
+	/**
+	 * Reads a tree written by {@link #write(GraphletTree, File)}.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @param factory
+	 *            The graphlet factory the tree was made with.
+	 * @return the tree.
+	 * @throws IOException
+	 *             if the file can not be read, is not a tree file or belongs to
+	 *             another kind of graphlets.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> GraphletTree<T, U> read(File file,
+			AbstractGraphletFactory<T, U> factory) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			return read(in, factory);
+		}
+	}
+
+	/**
+	 * Reads a tree written by {@link #write(GraphletTree, DataOutput)}.
+	 *
+	 * @param in
+	 *            The input to read from.
+	 * @param factory
+	 *            The graphlet factory the tree was made with.
+	 * @return the tree.
+	 * @throws IOException
+	 *             if the input can not be read, is not a tree or belongs to
+	 *             another kind of graphlets.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> GraphletTree<T, U> read(DataInput in,
+			AbstractGraphletFactory<T, U> factory) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a graphlet tree");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported graphlet tree version " + version);
+		}
+		String factoryClass = in.readUTF();
+		int order = in.readInt();
+		boolean orbitRep = in.readBoolean();
+		GraphletTree<T, U> tree = new GraphletTree<>(factory, order);
+		List<U> edgeTypes = tree.getEdgeTypes();
+		boolean matches = factoryClass.equals(factory.getClass().getName()) && orbitRep == tree.isOrbitRep();
+		int typeCount = in.readInt();
+		matches &= typeCount == edgeTypes.size();
+		for (int i = 0; i < typeCount; i++) {
+			String type = in.readUTF();
+			matches &= i < edgeTypes.size() && type.equals(String.valueOf(edgeTypes.get(i)));
+		}
+		if (!matches) {
+			throw new IOException("Graphlet tree made for other graphlets");
+		}
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+
+		// first create all nodes, then link them, as children may come
+		// before their parents if subtrees are shared
+		int count = in.readInt();
+		byte[] tags = new byte[count];
+		int[] parents = new int[count];
+		int[][] links = new int[count][];
+		List<TreeNode<T, U>> nodes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			parents[i] = in.readInt();
+			String representation = strings[in.readInt()];
+			tags[i] = in.readByte();
+			if (tags[i] == ADD_NODE) {
+				int symmetry = in.readInt();
+				int length = in.readInt();
+				List<Integer> automorphism = null;
+				if (length >= 0) {
+					automorphism = new ArrayList<>(length);
+					for (int j = 0; j < length; j++) {
+						automorphism.add(in.readInt());
+					}
+				}
+				links[i] = new int[in.readInt() * 3];
+				for (int j = 0; j < links[i].length; j++) {
+					links[i][j] = in.readInt();
+				}
+				if (i == 0) {
+					nodes.add(tree.getRoot());
+				} else {
+					nodes.add(new AddNodeNode<T, U>(null, representation, symmetry, automorphism));
+				}
+			} else if (tags[i] == ADD_EDGE) {
+				int node = in.readInt();
+				int type = in.readInt();
+				links[i] = new int[] { in.readInt(), in.readInt() };
+				nodes.add(new AddEdgeNode<T, U>(null, representation, node, type));
+			} else if (tags[i] == CONDITION) {
+				int first = in.readInt();
+				int second = in.readInt();
+				links[i] = new int[] { in.readInt() };
+				nodes.add(new ConditionNode<T, U>(null, representation, first, second));
+			} else {
+				throw new IOException("Invalid tree node type " + tags[i]);
+			}
+		}
+		if (count == 0 || tags[0] != ADD_NODE) {
+			throw new IOException("Invalid tree root");
+		}
+		for (int i = 0; i < count; i++) {
+			TreeNode<T, U> node = nodes.get(i);
+			if (i > 0) {
+				node.parent = parents[i] < 0 ? null : nodes.get(parents[i]);
+				node.temporaryParents.set(0, node.parent);
+				node.tree = tree;
+			}
+			int[] link = links[i];
+			if (tags[i] == ADD_NODE) {
+				for (int j = 0; j < link.length; j += 3) {
+					((AddNodeNode<T, U>) node).addChild(link[j], link[j + 1] < 0 ? null : edgeTypes.get(link[j + 1]),
+							nodes.get(link[j + 2]));
+				}
+			} else if (tags[i] == ADD_EDGE) {
+				for (int j = 0; j < 2; j++) {
+					if (link[j] >= 0) {
+						((AddEdgeNode<T, U>) node).addChild(j == 1, nodes.get(link[j]));
+					}
+				}
+			} else if (link[0] >= 0) {
+				((ConditionNode<T, U>) node).setChild(nodes.get(link[0]));
+			}
+		}
+		int leaves = in.readInt();
+		for (int i = 0; i < leaves; i++) {
+			tree.addLeaf((AddNodeNode<T, U>) nodes.get(in.readInt()));
+		}
+		tree.assignIds();
+		return tree;
+	}
+
+	/**
+	 * Returns the children of a tree node in a fixed order.
+	 */
+	private static <T extends AbstractGraphlet<U>, U extends Comparable<U>> List<TreeNode<T, U>> childrenOf(
+			TreeNode<T, U> node) {
+		List<TreeNode<T, U>> result = new ArrayList<>();
+		if (node instanceof AddNodeNode) {
+			for (SortedMap<U, TreeNode<T, U>> byType : ((AddNodeNode<T, U>) node).getChildrenMap().values()) {
+				result.addAll(byType.values());
+			}
+		} else if (node instanceof AddEdgeNode) {
+			result.add(((AddEdgeNode<T, U>) node).getChild(false));
+			result.add(((AddEdgeNode<T, U>) node).getChild(true));
+		} else if (node instanceof ConditionNode) {
+			result.add(((ConditionNode<T, U>) node).getChild());
+		}
+		return result;
+	}
+
+	private static <T extends AbstractGraphlet<U>, U extends Comparable<U>> int idOf(
+			Map<TreeNode<T, U>, Integer> ids, TreeNode<T, U> node) {
+		return node == null ? -1 : ids.get(node);
+	}
+}
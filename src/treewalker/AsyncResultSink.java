@@ -0,0 +1,185 @@
+package treewalker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Result sink that hands the rows to another sink on a writer thread of its
+ * own, so that counting does not wait for the disk. Rows may be written by
+ * several threads and in any order; they are passed on in order of their node,
+ * in batches of consecutive rows. The row of the whole graph counts as row 0.
+ *
+ * At most a fixed number of rows is held at once: a row that is too far ahead
+ * of the first row that has not been passed on yet waits until there is room.
+ * If a row will never come, e.g. because the thread counting it failed, the
+ * sink should be aborted, which wakes the threads that are waiting.
+ */
+public class AsyncResultSink implements ResultSink {
+
+	private static final int BATCH_SIZE = 256;
+
+	private final ResultSink sink;
+	private final Row[] window;
+	private int next = 0;
+	private boolean finished = false;
+	private Throwable error;
+	private Throwable abort;
+	private Writer writer;
+
+	private static class Row {
+		private final int node;
+		private final String name;
+		private final NavigableMap<String, Long> results;
+
+		private Row(int node, String name, NavigableMap<String, Long> results) {
+			this.node = node;
+			this.name = name;
+			this.results = results;
+		}
+	}
+
+	/**
+	 * Passes the rows on to the sink, in node order.
+	 */
+	private class Writer extends Thread {
+
+		private Writer() {
+			super("result writer");
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			List<Row> batch = new ArrayList<>(BATCH_SIZE);
+			try {
+				while (true) {
+					synchronized (AsyncResultSink.this) {
+						while (window[next % window.length] == null && !finished) {
+							AsyncResultSink.this.wait();
+						}
+						while (batch.size() < BATCH_SIZE && window[next % window.length] != null) {
+							batch.add(window[next % window.length]);
+							window[next % window.length] = null;
+							next++;
+						}
+						if (batch.isEmpty()) {
+							return;
+						}
+						AsyncResultSink.this.notifyAll();
+					}
+					for (Row row : batch) {
+						sink.write(row.node, row.name, row.results);
+					}
+					batch.clear();
+				}
+			} catch (IOException | RuntimeException | InterruptedException e) {
+				synchronized (AsyncResultSink.this) {
+					error = e;
+					AsyncResultSink.this.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a sink that passes its rows on to the given sink, holding at most
+	 * the given number of rows.
+	 *
+	 * @param sink
+	 *            The sink the rows are written to.
+	 * @param capacity
+	 *            The maximal number of rows that are held.
+	 */
+	public AsyncResultSink(ResultSink sink, int capacity) {
+		this.sink = sink;
+		window = new Row[capacity];
+	}
+
+	@Override
+	public void start(List<String> keys, int rows) throws IOException {
+		sink.start(keys, rows);
+		writer = new Writer();
+		writer.start();
+	}
+
+	@Override
+	public void write(int node, String name, NavigableMap<String, Long> results) throws IOException {
+		int index = Math.max(node, 0);
+		synchronized (this) {
+			try {
+				while (error == null && abort == null && index >= next + window.length) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			if (error != null) {
+				throw new IOException("Results could not be written", error);
+			}
+			if (abort != null) {
+				throw new IOException("Writing the results was aborted", abort);
+			}
+			if (index < next || window[index % window.length] != null) {
+				throw new IllegalArgumentException("Row " + node + " was already written");
+			}
+			window[index % window.length] = new Row(node, name, results);
+			if (index == next) {
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting rows: threads waiting for room in {@link #write} and any
+	 * later calls throw an exception with the given cause. The rows that were
+	 * already accepted are still passed on by {@link #finish()} up to the first
+	 * one that is missing.
+	 *
+	 * @param cause
+	 *            The reason why the remaining rows will not be written.
+	 */
+	public synchronized void abort(Throwable cause) {
+		if (abort == null) {
+			abort = cause;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the writer thread has passed on all rows up to the first one
+	 * that is missing, without closing the other sink.
+	 *
+	 * @throws IOException
+	 *             if the rows could not be written.
+	 */
+	public void finish() throws IOException {
+		if (writer == null) {
+			return;
+		}
+		synchronized (this) {
+			finished = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+		writer = null;
+		if (error != null) {
+			throw new IOException("Results could not be written", error);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			sink.close();
+		}
+	}
+}
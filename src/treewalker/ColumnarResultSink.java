@@ -0,0 +1,225 @@
+package treewalker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Writes the results to a binary file with a column of counts per graphlet or
+ * orbit, so that a single orbit can be read without parsing the others. All
+ * numbers are little endian:
+ * <ul>
+ * <li>the header: the magic number "SDCOUNT1" as a long, the version, the
+ * number of rows, the number of columns and the total length of the column
+ * names as ints, followed by the start of every column name and the end of the
+ * last one as ints and the UTF-8 bytes of the names, padded to a multiple of 8
+ * bytes;</li>
+ * <li>the columns, one after the other, each with a long count for every
+ * row;</li>
+ * <li>the row labels: an int that is 1 if the nodes have names and 0 if not,
+ * the node of every row as an int, -1 for the whole graph, and if there are
+ * names, the start of every name and the end of the last one as ints followed
+ * by the UTF-8 bytes of the names.</li>
+ * </ul>
+ * Rows are collected in blocks and every block is written to all columns
+ * through a buffered file channel.
+ */
+public class ColumnarResultSink implements ResultSink {
+
+	private static final long MAGIC = 0x5344434F_554E5431L; // "SDCOUNT1", stored little endian
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BLOCK_SIZE = 1 << 24;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private Map<String, Integer> columns;
+	private int rows;
+	private long dataStart;
+	private long[] block;
+	private int blockRows;
+	private int firstRow = 0;
+	private int row = 0;
+	private int[] nodes;
+	private int[] nameStarts;
+	private ByteArrayOutputStream names;
+	private boolean hasNames = false;
+
+	/**
+	 * Creates a sink that writes to the given file.
+	 *
+	 * @param file
+	 *            The file the results are written to.
+	 * @throws IOException
+	 *             if the file can not be opened.
+	 */
+	public ColumnarResultSink(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		channel = this.file.getChannel();
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void start(List<String> keys, int rows) throws IOException {
+		this.rows = rows;
+		columns = new HashMap<>();
+		byte[][] keyBytes = new byte[keys.size()][];
+		int length = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			columns.put(keys.get(i), i);
+			keyBytes[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+			length += keyBytes[i].length;
+		}
+		buffer.clear();
+		buffer.putLong(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(rows);
+		buffer.putInt(keys.size());
+		buffer.putInt(length);
+		long position = 0;
+		int start = 0;
+		for (byte[] key : keyBytes) {
+			position = ensure(position, 4);
+			buffer.putInt(start);
+			start += key.length;
+		}
+		position = ensure(position, 4);
+		buffer.putInt(start);
+		for (byte[] key : keyBytes) {
+			for (byte b : key) {
+				position = ensure(position, 1);
+				buffer.put(b);
+			}
+		}
+		while (buffer.position() % 8 != 0) {
+			position = ensure(position, 1);
+			buffer.put((byte) 0);
+		}
+		dataStart = position + buffer.position();
+		flush(position);
+
+		blockRows = Math.max(1, Math.min(rows, BLOCK_SIZE / 8 / Math.max(1, keys.size())));
+		block = new long[blockRows * keys.size()];
+		nodes = new int[rows];
+		nameStarts = new int[rows + 1];
+		names = new ByteArrayOutputStream();
+	}
+
+	@Override
+	public void write(int node, String name, NavigableMap<String, Long> results) throws IOException {
+		if (row == rows) {
+			throw new IOException("More than " + rows + " rows");
+		}
+		int blockRow = row - firstRow;
+		for (Map.Entry<String, Long> result : results.entrySet()) {
+			Integer column = columns.get(result.getKey());
+			if (column == null) {
+				throw new IOException("Unexpected result " + result.getKey());
+			}
+			block[column * blockRows + blockRow] = result.getValue();
+		}
+		nodes[row] = node;
+		if (name != null) {
+			hasNames = true;
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			names.write(bytes, 0, bytes.length);
+		}
+		nameStarts[++row] = names.size();
+		if (row - firstRow == blockRows) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Writes the rows of the current block to every column.
+	 */
+	private void writeBlock() throws IOException {
+		int count = row - firstRow;
+		for (int column = 0; column < columns.size(); column++) {
+			long position = dataStart + 8L * ((long) column * rows + firstRow);
+			buffer.clear();
+			for (int i = 0; i < count; i++) {
+				position = ensure(position, 8);
+				buffer.putLong(block[column * blockRows + i]);
+			}
+			flush(position);
+		}
+		Arrays.fill(block, 0);
+		firstRow = row;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (columns == null) {
+				return;
+			}
+			if (row > firstRow) {
+				writeBlock();
+			}
+			if (row < rows) {
+				throw new IOException("Only " + row + " of " + rows + " rows were written");
+			}
+			long position = dataStart + 8L * rows * columns.size();
+			buffer.clear();
+			buffer.putInt(hasNames ? 1 : 0);
+			for (int node : nodes) {
+				position = ensure(position, 4);
+				buffer.putInt(node);
+			}
+			if (hasNames) {
+				for (int start : nameStarts) {
+					position = ensure(position, 4);
+					buffer.putInt(start);
+				}
+				for (byte b : names.toByteArray()) {
+					position = ensure(position, 1);
+					buffer.put(b);
+				}
+			}
+			flush(position);
+		} finally {
+			columns = null;
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes the buffer to the given position if it has less than the given
+	 * number of bytes left.
+	 *
+	 * @return the position after the buffer.
+	 */
+	private long ensure(long position, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			position = flush(position);
+			buffer.clear();
+		}
+		return position;
+	}
+
+	/**
+	 * Writes the buffer to the given position.
+	 *
+	 * @return the position after the written bytes.
+	 */
+	private long flush(long position) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		return position;
+	}
+}
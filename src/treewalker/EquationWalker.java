@@ -29,23 +29,63 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 	private SortedSet<Equation<T>> equations;
 	private SortedMap<String, List<Equation<T>>> equationsByRHS;
 	private SortedSet<String> largerGraphlets;
-	private SortedMap<String, Integer> minus;
-	private SortedMap<String, List<String>> lhs;
-	private SortedMap<String, List<Integer>> lhsFactors;
-	private SortedMap<String, Map<List<Set<Integer>>, String>> rhs;
+	/**
+	 * The ids of the larger graphlets, in the order in which they are solved.
+	 */
+	private int[] largerIds;
+	private int[] minus;
+	private int[][] lhs;
+	private int[][] lhsFactors;
+	private Term[][] rhs;
 	private CommonsCounter<U> commons;
 	private boolean saving = true;
 
+	/**
+	 * A common neighbour term of an equation, in the node numbering of the
+	 * equation's right hand side graphlet in the tree.
+	 */
+	private static class Term {
+		private final List<Set<Integer>> nodes;
+		private final int lhs;
+
+		private Term(List<Set<Integer>> nodes, int lhs) {
+			this.nodes = nodes;
+			this.lhs = lhs;
+		}
+	}
+
 	public EquationWalker(GraphletTree<T, U> tree, AbstractGraph<U> graph, Collection<Equation<T>> equations) {
 		super(tree, graph);
 		this.equations = EquationSelecter.selectEquations(equations);
 		analyseEquations();
-		commons = new CommonsCounter<>(graph, tree.getOrder(),tree.getFactory());
+		commons = new CommonsCounter<>(this.graph, tree.getOrder(),tree.getFactory());
 //		commons.recursiveCommons();
 	}
+
+	/**
+	 * Creates a walker that shares the equations and common neighbours of the
+	 * given one.
+	 */
+	protected EquationWalker(EquationWalker<T, U> walker) {
+		super(walker);
+		equations = walker.equations;
+		equationsByRHS = walker.equationsByRHS;
+		largerGraphlets = walker.largerGraphlets;
+		largerIds = walker.largerIds;
+		minus = walker.minus;
+		lhs = walker.lhs;
+		lhsFactors = walker.lhsFactors;
+		rhs = walker.rhs;
+		commons = walker.commons;
+	}
+
+	@Override
+	public EquationWalker<T, U> copy() {
+		return new EquationWalker<>(this);
+	}
 	
 	private void analyseTree() {
-		rhs = new TreeMap<>();
+		rhs = new Term[keys.size()][];
 		for (AddNodeNode<T, U> leaf : tree.getLeaves()) {
 			String rhsGraphlet = leaf.getRepresentation();
 			List<Integer> permutation = leaf.getCanonicalAutomorphism();
@@ -64,7 +104,11 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 						commons.put(translatedTerm, equation.getLhs().firstKey());
 					}
 				}
-				rhs.put(rhsGraphlet, commons);
+				List<Term> terms = new ArrayList<>();
+				for (Map.Entry<List<Set<Integer>>, String> entry : commons.entrySet()) {
+					terms.add(new Term(entry.getKey(), idOf(entry.getValue())));
+				}
+				rhs[leaf.getId()] = terms.toArray(new Term[terms.size()]);
 			}
 		}
 	}
@@ -72,23 +116,29 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 	private void analyseEquations() {
 		largerGraphlets = new TreeSet<>(Collections.reverseOrder(new CanonicalComparator()));
 		equationsByRHS = new TreeMap<>();
-		lhs = new TreeMap<>();
-		lhsFactors = new TreeMap<>();
-		minus = new TreeMap<>();
+		for (Equation<T> equation : equations) {
+			for (String graphlet : equation.getLhs().keySet()) {
+				idOf(graphlet);
+			}
+		}
+		lhs = new int[keys.size()][];
+		lhsFactors = new int[keys.size()][];
+		minus = new int[keys.size()];
 		for (Equation<T> equation : equations) {
 			Iterator<String> lhsIterator = equation.getLhs().keySet().iterator();
 			String lhskey = lhsIterator.next();
-			List<String> terms = new ArrayList<>();
-			List<Integer> factors = new ArrayList<>();
-			factors.add(equation.getLhs().get(lhskey));
-			while (lhsIterator.hasNext()) {
+			int[] terms = new int[equation.getLhs().size() - 1];
+			int[] factors = new int[equation.getLhs().size()];
+			factors[0] = equation.getLhs().get(lhskey);
+			for (int i = 0; lhsIterator.hasNext(); i++) {
 				String graphlet = lhsIterator.next();
-				terms.add(graphlet);
-				factors.add(equation.getLhs().get(graphlet));
+				terms[i] = idOf(graphlet);
+				factors[i + 1] = equation.getLhs().get(graphlet);
 			}
-			lhs.put(lhskey, terms);
-			lhsFactors.put(lhskey, factors);
-			minus.put(lhskey, equation.getMinus());
+			int id = idOf(lhskey);
+			lhs[id] = terms;
+			lhsFactors[id] = factors;
+			minus[id] = equation.getMinus();
 			String key = equation.getRhsGraphlet();
 			List<Equation<T>> thingy = equationsByRHS.get(key);
 			if (thingy == null) {
@@ -98,9 +148,25 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 			thingy.add(equation);
 			largerGraphlets.add(lhskey);
 		}
+		largerIds = new int[largerGraphlets.size()];
+		int i = 0;
+		for (String graphlet : largerGraphlets) {
+			largerIds[i++] = idOf(graphlet);
+		}
 		analyseTree();
 	}
 
+	/**
+	 * Returns the graphlets or orbits of the tree and those counted with the
+	 * equations.
+	 */
+	@Override
+	public SortedSet<String> getResultKeys() {
+		SortedSet<String> keys = super.getResultKeys();
+		keys.addAll(largerGraphlets);
+		return keys;
+	}
+
 	public void reset() {
 		saving = true;
 		super.reset();
@@ -114,27 +180,22 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 	}
 
 	protected void register(AddNodeNode<T, U> treeNode) {
-		String canonical = treeNode.getRepresentation();
 		if (saving) {
 			super.register(treeNode);
-			if (equationsByRHS.containsKey(canonical)) {
-				for (List<Set<Integer>> l : rhs.get(canonical).keySet()) {
+			Term[] terms = rhs[treeNode.getId()];
+			if (terms != null) {
+				for (Term term : terms) {
 					List<SortedSet<Integer>> translation = new ArrayList<>();
-					for (Set<Integer> term : l) {
-						SortedSet<Integer> translatedTerm = new TreeSet<>();
-						for (int j : term) {
-							translatedTerm.add(instance.get(j));
+					for (Set<Integer> part : term.nodes) {
+						SortedSet<Integer> translatedPart = new TreeSet<>();
+						for (int j : part) {
+							translatedPart.add(instance.get(j));
 						}
-						translation.add(translatedTerm);
+						translation.add(translatedPart);
 					}
-					String index = rhs.get(canonical).get(l);
-					long plus = (long) (commons.getCommonNeighbours(translation) - minus.get(index));
+					long plus = (long) (commons.getCommonNeighbours(translation) - minus[term.lhs]);
 					if (plus != 0) {
-						try {
-							results.put(index, results.get(index) + plus);
-						} catch (NullPointerException e) {
-							results.put(index, plus);
-						}
+						add(term.lhs, plus);
 					}
 				}
 			}
@@ -145,30 +206,24 @@ public class EquationWalker<T extends AbstractGraphlet<U>, U extends Comparable<
 
 	public void solve() {
 //		System.out.println(results);
-		for (String s : largerGraphlets) {
-			if (results.containsKey(s)) {
-				long a = results.get(s);
-				for (int i = 0; i < lhs.get(s).size(); i++) {
-					if (results.containsKey(lhs.get(s).get(i))) {
-						if (lhsFactors.containsKey(s)) {
-							a -= results.get(lhs.get(s).get(i)) * lhsFactors.get(s).get(i + 1);
-						} else {
-							a -= results.get(lhs.get(s).get(i));
-						}
+		for (int s : largerIds) {
+			if (counted[s]) {
+				long a = results[s];
+				for (int i = 0; i < lhs[s].length; i++) {
+					int term = lhs[s][i];
+					if (counted[term]) {
+						a -= results[term] * lhsFactors[s][i + 1];
 					}
 				}
 				if (a != 0) {
-					a /= lhsFactors.get(s).get(0);
-					results.put(s, a);
+					a /= lhsFactors[s][0];
+					results[s] = a;
 				} else {
-					results.remove(s);
+					results[s] = 0;
+					counted[s] = false;
 				}
 			}
 		}
-		for (String s : results.keySet()) {
-			if (factors.containsKey(s) && factors.get(s) != 1) {
-				results.put(s, results.get(s) / factors.get(s));
-			}
-		}
+		super.solve();
 	}
 }
@@ -0,0 +1,114 @@
+package treewalker;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Stack of primitive ints, used to hold the graph nodes of the graphlet
+ * instance that is currently being built by a TreeWalker. Offers the same
+ * operations as the java.util.Stack it replaces, without boxing.
+ */
+public class IntStack {
+
+	private int[] elements;
+	private int size;
+
+	/**
+	 * Creates an empty stack.
+	 */
+	public IntStack() {
+		elements = new int[8];
+		size = 0;
+	}
+
+	/**
+	 * Pushes a value onto the top of this stack.
+	 *
+	 * @param value
+	 *            The value to be pushed.
+	 */
+	public void push(int value) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = value;
+	}
+
+	/**
+	 * Removes the value at the top of this stack and returns it.
+	 *
+	 * @return the value at the top of this stack.
+	 */
+	public int pop() {
+		if (size == 0) {
+			throw new EmptyStackException();
+		}
+		return elements[--size];
+	}
+
+	/**
+	 * Returns the value at the top of this stack without removing it.
+	 *
+	 * @return the value at the top of this stack.
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new EmptyStackException();
+		}
+		return elements[size - 1];
+	}
+
+	/**
+	 * Returns the value at the given position, counting from the bottom of the
+	 * stack.
+	 *
+	 * @param index
+	 *            The position of the value.
+	 * @return the value at the given position.
+	 */
+	public int get(int index) {
+		if (index >= size) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return elements[index];
+	}
+
+	/**
+	 * Returns <code>true</code> if the given value is on this stack.
+	 *
+	 * @param value
+	 *            The value to look for.
+	 * @return <code>true</code> if the value is on this stack.
+	 */
+	public boolean contains(int value) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of values on this stack.
+	 *
+	 * @return the size of this stack.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if this stack is empty.
+	 *
+	 * @return <code>true</code> if this stack is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(elements, size));
+	}
+}
@@ -0,0 +1,46 @@
+package treewalker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Destination for the counts of a {@link TreeWalker}. When counting orbits
+ * there is a row for every node of the graph, in the original node order;
+ * when counting graphlets there is a single row for the whole graph.
+ *
+ * @see TextResultSink
+ * @see TsvResultSink
+ * @see ColumnarResultSink
+ */
+public interface ResultSink extends Closeable {
+
+	/**
+	 * Called once before the first row.
+	 * 
+	 * @param keys
+	 *            Every graphlet or orbit that can occur in the results, in
+	 *            canonical order.
+	 * @param rows
+	 *            The number of rows that will be written.
+	 * @throws IOException
+	 *             if the results can not be written.
+	 */
+	public void start(List<String> keys, int rows) throws IOException;
+
+	/**
+	 * Writes one row of results. Graphlets or orbits that are missing from the
+	 * results have a count of zero.
+	 * 
+	 * @param node
+	 *            The node the counts belong to, or -1 for the whole graph.
+	 * @param name
+	 *            The name of the node, or <code>null</code> if it has none.
+	 * @param results
+	 *            The counts of the row.
+	 * @throws IOException
+	 *             if the results can not be written.
+	 */
+	public void write(int node, String name, NavigableMap<String, Long> results) throws IOException;
+}
@@ -27,14 +27,8 @@ public class SingleGraphletWalker<T extends AbstractGraphlet<U>, U extends Compa
 	private Set<List<Set<Integer>>> neighbours;
 	private int minus;
 	private CommonsCounter<U> commons;
-
-	protected void solve() {
-		for (String s : results.keySet()) {
-			if (factors.containsKey(s) && factors.get(s) != 1) {
-				results.put(s, results.get(s) / factors.get(s));
-			}
-		}
-	}
+	private int graphletId;
+	private int neighboursId;
 
 	public SingleGraphletWalker(GraphletTree<T, U> tree, AbstractGraph<U> graph, T graphlet,
 			Set<List<Set<Integer>>> neighbours, int minus) {
@@ -42,11 +36,33 @@ public class SingleGraphletWalker<T extends AbstractGraphlet<U>, U extends Compa
 		this.graphlet = graphlet;
 		this.neighbours = neighbours;
 		analyseTree();
-		commons = new CommonsCounter<>(graph, tree.getOrder() + 1, tree.getFactory());
+		graphletId = idOf(graphlet.canonical());
+		neighboursId = idOf("");
+		commons = new CommonsCounter<>(this.graph, tree.getOrder() + 1, tree.getFactory());
 		// commons.recursiveCommons();
 		this.minus = minus;
 	}
 
+	/**
+	 * Creates a walker that shares the graphlet and common neighbours of the
+	 * given one.
+	 */
+	protected SingleGraphletWalker(SingleGraphletWalker<T, U> walker) {
+		super(walker);
+		graphlet = walker.graphlet;
+		path = walker.path;
+		neighbours = walker.neighbours;
+		minus = walker.minus;
+		commons = walker.commons;
+		graphletId = walker.graphletId;
+		neighboursId = walker.neighboursId;
+	}
+
+	@Override
+	public SingleGraphletWalker<T, U> copy() {
+		return new SingleGraphletWalker<>(this);
+	}
+
 	private void analyseTree() {
 		path = new LinkedList<>();
 		TreeNode<T, U> current;
@@ -91,19 +107,20 @@ public class SingleGraphletWalker<T extends AbstractGraphlet<U>, U extends Compa
 //		System.out.println(neighbours);
 	}
 
+	/**
+	 * Returns the graphlets of the tree and the empty key under which the
+	 * common neighbour terms are counted.
+	 */
+	@Override
+	public SortedSet<String> getResultKeys() {
+		SortedSet<String> keys = super.getResultKeys();
+		keys.add("");
+		return keys;
+	}
+
 	protected void register(AddNodeNode<T, U> treeNode) {
-//		System.out.println("register");
-//		System.out.println(results);
-		String canonical = treeNode.getRepresentation();
-//		System.out.println(canonical);
-//		System.out.println(canonical);
-//		System.out.println(instance);
-		if (canonical.equals(graphlet.canonical())) {
-			try {
-				results.put(canonical, results.get(canonical) + 1);
-			} catch (NullPointerException e) {
-				results.put(canonical, 1L);
-			}
+		if (treeNode.getId() == graphletId) {
+			add(graphletId, 1);
 			for (List<Set<Integer>> terms : neighbours) {
 				List<SortedSet<Integer>> translation = new ArrayList<>();
 				for (Set<Integer> term : terms) {
@@ -113,14 +130,9 @@ public class SingleGraphletWalker<T extends AbstractGraphlet<U>, U extends Compa
 					}
 					translation.add(translatedTerm);
 				}
-				String index = "";
 				long plus = (long) (commons.getCommonNeighbours(translation) - minus);
 				if (plus != 0) {
-					try {
-						results.put(index, results.get(index) + plus);
-					} catch (NullPointerException e) {
-						results.put(index, plus);
-					}
+					add(neighboursId, plus);
 				}
 			}
 		}
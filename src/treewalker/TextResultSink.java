@@ -0,0 +1,44 @@
+package treewalker;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Writes every row as the map of its nonzero counts, preceded by the node's
+ * name and a tab if the node has a name. This is the original output format of
+ * {@link TreeWalker#run(PrintStream)}.
+ */
+public class TextResultSink implements ResultSink {
+
+	private final PrintStream ps;
+
+	/**
+	 * Creates a sink that prints to the given stream, which is closed with the
+	 * sink.
+	 * 
+	 * @param ps
+	 *            The stream the results are printed to.
+	 */
+	public TextResultSink(PrintStream ps) {
+		this.ps = ps;
+	}
+
+	@Override
+	public void start(List<String> keys, int rows) {
+	}
+
+	@Override
+	public void write(int node, String name, NavigableMap<String, Long> results) {
+		if (name != null) {
+			ps.print(name);
+			ps.print('\t');
+		}
+		ps.println(results);
+	}
+
+	@Override
+	public void close() {
+		ps.close();
+	}
+}
@@ -1,14 +1,21 @@
 package treewalker;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NavigableMap;
-import java.util.SortedMap;
-import java.util.Stack;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import graphlets.AbstractGraph;
 import graphlets.AbstractGraphlet;
 import graphlets.CanonicalComparator;
+import graphlets.IntSlice;
+import graphlets.NodeDictionary;
 import tree.AddEdgeNode;
 import tree.AddNodeNode;
 import tree.ConditionNode;
@@ -25,45 +32,182 @@ import tree.TreeNode;
 public class TreeWalker<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 
 	protected GraphletTree<T, U> tree;
-	protected Stack<Integer> instance;
-	protected NavigableMap<String, Long> results;
+	protected IntStack instance;
 	protected AbstractGraph<U> graph;
-	protected SortedMap<String, Integer> factors;
+	/**
+	 * The representation of every id that is counted: the graphlets or orbits
+	 * of the tree, numbered as in the tree, followed by those that only a
+	 * subclass counts.
+	 */
+	protected List<String> keys;
+	/**
+	 * The counts, indexed by id.
+	 */
+	protected long[] results;
+	/**
+	 * Whether the id has been counted since the last reset, and so occurs in
+	 * the results.
+	 */
+	protected boolean[] counted;
+	/**
+	 * The symmetry factor of every id counted from the tree, or 0.
+	 */
+	protected int[] factors;
 
 	public TreeWalker(GraphletTree<T, U> tree, AbstractGraph<U> graph) {
 		this.tree = tree;
-		instance = new Stack<>();
-		results = new TreeMap<>(new CanonicalComparator());
-		this.graph = graph;
-		factors = new TreeMap<>();
+		instance = new IntStack();
+		this.graph = graph.freeze();
+		keys = tree.getKeys();
+		results = new long[keys.size()];
+		counted = new boolean[keys.size()];
+		factors = new int[keys.size()];
 	}
 
+	/**
+	 * Creates a walker over the same tree and graph as the given one, with
+	 * results of its own, so that both can count at the same time.
+	 * 
+	 * @param walker
+	 *            The walker to be copied.
+	 */
+	protected TreeWalker(TreeWalker<T, U> walker) {
+		tree = walker.tree;
+		instance = new IntStack();
+		graph = walker.graph;
+		keys = walker.keys;
+		results = new long[keys.size()];
+		counted = new boolean[keys.size()];
+		factors = new int[keys.size()];
+	}
+
+	/**
+	 * Returns a walker that counts in the same way over the same tree and graph,
+	 * but keeps its own results. Everything that does not change while counting
+	 * is shared.
+	 * 
+	 * @return a copy of this walker.
+	 * @see TreeWalkerPool
+	 */
+	public TreeWalker<T, U> copy() {
+		return new TreeWalker<>(this);
+	}
+
+	/**
+	 * Adds the unsolved results of another walker over the same tree to those of
+	 * this one.
+	 */
+	void addResults(TreeWalker<T, U> walker) {
+		for (int id = 0; id < results.length; id++) {
+			if (walker.counted[id]) {
+				add(id, walker.results[id]);
+			}
+			if (walker.factors[id] != 0) {
+				factors[id] = walker.factors[id];
+			}
+		}
+	}
+
+	/**
+	 * Returns the id of the given graphlet or orbit, giving it a new id after
+	 * the existing ones if it has none yet. New ids can only be made before
+	 * counting, while the walker is set up.
+	 * 
+	 * @param key
+	 *            The canonical representation of a graphlet or orbit.
+	 * @return the id of the key.
+	 */
+	protected int idOf(String key) {
+		int id = tree.getId(key);
+		if (id < 0) {
+			id = keys.indexOf(key);
+		}
+		if (id < 0) {
+			keys = new ArrayList<>(keys);
+			keys.add(key);
+			id = keys.size() - 1;
+			results = Arrays.copyOf(results, keys.size());
+			counted = Arrays.copyOf(counted, keys.size());
+			factors = Arrays.copyOf(factors, keys.size());
+		}
+		return id;
+	}
+
+	/**
+	 * Counts the graphlets of the whole graph and prints the results. When
+	 * counting orbits, there is a line per node, in the original node order,
+	 * starting with the node's name if the graph has node names.
+	 * 
+	 * @param ps
+	 *            The stream the results are printed to.
+	 * @see TextResultSink
+	 */
 	public void run(PrintStream ps) {
+		try {
+			run(new TextResultSink(ps));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Counts the graphlets of the whole graph and writes the results to the
+	 * given sink. When counting orbits, there is a row per node, in the original
+	 * node order. The sink is not closed.
+	 * 
+	 * @param sink
+	 *            The sink the results are written to.
+	 * @throws IOException
+	 *             if the sink can not write the results.
+	 */
+	public void run(ResultSink sink) throws IOException {
+		NodeDictionary names = graph.getNodeNames();
+		sink.start(new ArrayList<>(getResultKeys()), tree.isOrbitRep() ? graph.getOrder() : 1);
 		for (int node = 0; node < graph.getOrder(); node++) {
-			run(node);
-//			ps.println();
+			run(graph.getNode(node));
 			if (tree.isOrbitRep()) {
-				ps.println(exportResults());
-//				solve();
-//				ps.println(printResults());
-//				reset();
-				// results = new TreeMap<>(new StringComparator());
+				sink.write(node, names != null && node < names.size() ? names.getName(node) : null, exportResults());
 			}
 		}
 		if (!tree.isOrbitRep()) {
-			ps.println(exportResults());
-//			solve();
-//			ps.println(printResults());
-//			reset();
+			sink.write(-1, null, exportResults());
 		}
 	}
+
+	/**
+	 * Returns every graphlet or orbit that can occur in the results: those of
+	 * the nodes of the tree, in canonical order.
+	 * 
+	 * @return the possible keys of {@link #exportResults()}.
+	 */
+	public SortedSet<String> getResultKeys() {
+		SortedSet<String> result = new TreeSet<>(new CanonicalComparator());
+		result.addAll(tree.getKeys());
+		return result;
+	}
 	
+	/**
+	 * Solves the results, returns those that were counted by their graphlet or
+	 * orbit, and resets the walker.
+	 * 
+	 * @return the solved results, in canonical order.
+	 */
 	public NavigableMap<String,Long> exportResults(){
 		solve();
-		NavigableMap<String,Long> result= results;
+		NavigableMap<String,Long> result= resultMap();
 		reset();
 		return result;
 	}
+
+	private NavigableMap<String, Long> resultMap() {
+		NavigableMap<String, Long> result = new TreeMap<>(new CanonicalComparator());
+		for (int id = 0; id < results.length; id++) {
+			if (counted[id]) {
+				result.put(keys.get(id), results[id]);
+			}
+		}
+		return result;
+	}
 	
 
 	public /*NavigableMap<String, Long>*/void run(int node) {
@@ -77,27 +221,29 @@ public class TreeWalker<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 
 	protected void solve() {
 //		System.out.println(results);
-		for (String s : results.keySet()) {
-			if (factors.containsKey(s) && factors.get(s) != 1) {
-				results.put(s, results.get(s) / factors.get(s));
+		for (int id = 0; id < results.length; id++) {
+			if (counted[id] && factors[id] != 0 && factors[id] != 1) {
+				results[id] /= factors[id];
 			}
 		}
 	}
 
 	public void reset() {
-		instance = new Stack<>();
-		results = new TreeMap<>(new CanonicalComparator());
+		instance = new IntStack();
+		Arrays.fill(results, 0);
+		Arrays.fill(counted, false);
 	}
 
 	public String printResults() {
 		StringBuilder sb = new StringBuilder();
-		if (results.isEmpty())
+		NavigableMap<String, Long> map = resultMap();
+		if (map.isEmpty())
 			return "";
-		for (String s : results.keySet()) {
+		for (String s : map.keySet()) {
 			sb.append(s);
 			sb.append(":");
 			// sb.append(results.get(s));
-			sb.append(results.get(s));
+			sb.append(map.get(s));
 			sb.append(", ");
 		}
 		return sb.substring(0, sb.length() - 2);
@@ -117,7 +263,9 @@ public class TreeWalker<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 		register(treeNode);
 		for (int i : treeNode.getChildrenMap().keySet()) {
 			for (U type : treeNode.getChildrenMap().get(i).keySet()) {
-				for (int graphnode : graph.getNeighbours(instance.get(i), type)) {
+				IntSlice neighbours = graph.getNeighbourSlice(instance.get(i), type);
+				for (int j = 0; j < neighbours.size(); j++) {
+					int graphnode = neighbours.getInt(j);
 					if (!instance.contains(graphnode)) {
 						instance.push(graphnode);
 						action(treeNode.getChildrenMap().get(i).get(type));
@@ -129,20 +277,26 @@ public class TreeWalker<T extends AbstractGraphlet<U>, U extends Comparable<U>>
 	}
 
 	protected void register(AddNodeNode<T, U> treeNode) {
-		String canonical = treeNode.getRepresentation();
-		try {
-			results.put(canonical, results.get(canonical) + 1);
-		} catch (NullPointerException e) {
-			factors.put(canonical, treeNode.getSymmetryFactor());
-			results.put(canonical, 1L);
+		int id = treeNode.getId();
+		if (!counted[id]) {
+			counted[id] = true;
+			factors[id] = treeNode.getSymmetryFactor();
 		}
+		results[id]++;
+	}
+
+	/**
+	 * Adds the given count to the results of the given id.
+	 */
+	protected void add(int id, long count) {
+		counted[id] = true;
+		results[id] += count;
 	}
 
 	protected void addEdgeAction(AddEdgeNode<T, U> treenode) {
 		int graphletnode = treenode.getNode();
 		U edgetype = treenode.getType();
-		TreeNode<T, U> currentNode = treenode
-				.getChild(graph.getNeighbours(instance.get(graphletnode), edgetype).contains(instance.peek()));
+		TreeNode<T, U> currentNode = treenode.getChild(graph.hasEdge(instance.get(graphletnode), instance.peek(), edgetype));
 		if (currentNode != null) {
 			action(currentNode);
 		}
@@ -0,0 +1,130 @@
+package treewalker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import graphlets.AbstractGraph;
+import graphlets.AbstractGraphlet;
+import graphlets.NodeDictionary;
+
+/**
+ * Counts with several copies of a tree walker at once. The threads take chunks
+ * of nodes in turn; when counting orbits, every node's results are handed to
+ * an {@link AsyncResultSink}, which writes them in node order on a thread of
+ * its own. When counting graphlets, the results of all walkers are added up
+ * before they are solved. As soon as one of the threads fails, the sink is
+ * aborted and the other threads are interrupted, so that none of them keeps
+ * waiting for the row of the failed one.
+ *
+ * @param <T>
+ *            The graphlet type of the walkers.
+ * @param <U>
+ *            The edge type of the walkers.
+ */
+public class TreeWalkerPool<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
+
+	private static final int CHUNK_SIZE = 64;
+	private static final int WINDOW_SIZE = 4096;
+
+	private final List<TreeWalker<T, U>> walkers;
+
+	/**
+	 * Creates a pool of the given walker and copies of it.
+	 *
+	 * @param walker
+	 *            The walker to count with.
+	 * @param threads
+	 *            The number of walkers that count at the same time.
+	 */
+	public TreeWalkerPool(TreeWalker<T, U> walker, int threads) {
+		walkers = new ArrayList<>(threads);
+		walkers.add(walker);
+		for (int i = 1; i < threads; i++) {
+			walkers.add(walker.copy());
+		}
+	}
+
+	/**
+	 * Counts the graphlets of the whole graph and writes the results to the
+	 * given sink, like {@link TreeWalker#run(ResultSink)}. The sink is not
+	 * closed.
+	 *
+	 * @param sink
+	 *            The sink the results are written to.
+	 * @throws IOException
+	 *             if the sink can not write the results.
+	 */
+	public void run(ResultSink sink) throws IOException {
+		final TreeWalker<T, U> first = walkers.get(0);
+		final boolean orbits = first.tree.isOrbitRep();
+		final AbstractGraph<U> graph = first.graph;
+		final NodeDictionary names = graph.getNodeNames();
+		final AsyncResultSink async = new AsyncResultSink(sink, WINDOW_SIZE);
+		final AtomicInteger nextNode = new AtomicInteger();
+		async.start(new ArrayList<>(first.getResultKeys()), orbits ? graph.getOrder() : 1);
+		ExecutorService executor = Executors.newFixedThreadPool(walkers.size());
+		CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+		try {
+			for (final TreeWalker<T, U> walker : walkers) {
+				completion.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						int start;
+						while (!Thread.currentThread().isInterrupted()
+								&& (start = nextNode.getAndAdd(CHUNK_SIZE)) < graph.getOrder()) {
+							int end = Math.min(start + CHUNK_SIZE, graph.getOrder());
+							for (int node = start; node < end; node++) {
+								walker.run(graph.getNode(node));
+								if (orbits) {
+									async.write(node, names != null && node < names.size() ? names.getName(node) : null,
+											walker.exportResults());
+								}
+							}
+						}
+						return null;
+					}
+				});
+			}
+			// in order of completion, so the first failure is seen right away
+			for (int i = 0; i < walkers.size(); i++) {
+				completion.take().get();
+			}
+		} catch (ExecutionException | InterruptedException e) {
+			Throwable cause = e instanceof ExecutionException ? e.getCause() : new InterruptedIOException();
+			async.abort(cause);
+			executor.shutdownNow();
+			try {
+				async.finish();
+			} catch (IOException suppressed) {
+				cause.addSuppressed(suppressed);
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			executor.shutdown();
+		}
+		if (!orbits) {
+			for (int i = 1; i < walkers.size(); i++) {
+				first.addResults(walkers.get(i));
+				walkers.get(i).reset();
+			}
+			async.write(-1, null, first.exportResults());
+		}
+		async.finish();
+	}
+}
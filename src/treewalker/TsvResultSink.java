@@ -0,0 +1,73 @@
+package treewalker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Writes the results as tab-separated values: a header line with the
+ * graphlets or orbits, followed by a line per row with the node's name, or its
+ * number if it has no name, and a count for every column.
+ */
+public class TsvResultSink implements ResultSink {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Writer out;
+	private Map<String, Integer> columns;
+	private long[] row;
+
+	/**
+	 * Creates a sink that writes to the given stream, which is closed with the
+	 * sink.
+	 * 
+	 * @param out
+	 *            The stream the results are written to.
+	 */
+	public TsvResultSink(OutputStream out) {
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	@Override
+	public void start(List<String> keys, int rows) throws IOException {
+		columns = new HashMap<>();
+		row = new long[keys.size()];
+		out.write("node");
+		for (String key : keys) {
+			columns.put(key, columns.size());
+			out.write('\t');
+			out.write(key);
+		}
+		out.write('\n');
+	}
+
+	@Override
+	public void write(int node, String name, NavigableMap<String, Long> results) throws IOException {
+		for (Map.Entry<String, Long> result : results.entrySet()) {
+			Integer column = columns.get(result.getKey());
+			if (column == null) {
+				throw new IOException("Unexpected result " + result.getKey());
+			}
+			row[column] = result.getValue();
+		}
+		out.write(name != null ? name : node < 0 ? "graph" : Integer.toString(node));
+		for (int i = 0; i < row.length; i++) {
+			out.write('\t');
+			out.write(Long.toString(row[i]));
+			row[i] = 0;
+		}
+		out.write('\n');
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
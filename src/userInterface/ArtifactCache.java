@@ -0,0 +1,252 @@
+package userInterface;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+import equationgeneration.Equation;
+import equationgeneration.EquationIO;
+import graphletgeneration.AbstractGraphletFactory;
+import graphlets.AbstractGraphlet;
+import graphlets.CanonicalTable;
+import tree.GraphletTree;
+import tree.TreeIO;
+
+/**
+ * On-disk cache of generated graphlet trees, equations and canonical tables.
+ * They only depend on the graphlet factory, the order and whether orbits are
+ * counted, but generating them for larger orders takes minutes, so they are
+ * stored once and reused by later runs.
+ *
+ * Every entry is keyed by the factory class, the order, the orbit setting and
+ * the number of edge types, and is stored with a format version and a CRC32
+ * checksum of its contents. Entries that are missing, of another version or
+ * damaged are treated as absent, so they are simply generated and stored again.
+ * Entries are written to a temporary file first and then moved in place, so
+ * concurrent runs never see half a file.
+ */
+public class ArtifactCache {
+
+	private static final int MAGIC = 0x53444143; // "SDAC"
+	private static final int VERSION = 1;
+
+	private final File directory;
+
+	/**
+	 * Creates a cache in the given directory, which is made when the first entry
+	 * is stored.
+	 *
+	 * @param directory
+	 *            The cache directory, or <code>null</code> to cache nothing.
+	 */
+	public ArtifactCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the cache in the directory given by the
+	 * <code>seadragon.cache</code> system property, or in
+	 * <code>.seadragon</code> in the user's home directory if it is not set. An
+	 * empty property turns the cache off.
+	 *
+	 * @return the default cache.
+	 */
+	public static ArtifactCache getDefault() {
+		String directory = System.getProperty("seadragon.cache");
+		if (directory == null) {
+			return new ArtifactCache(new File(System.getProperty("user.home"), ".seadragon"));
+		}
+		return new ArtifactCache(directory.isEmpty() ? null : new File(directory));
+	}
+
+	/**
+	 * Returns the cached tree for the given graphlets.
+	 *
+	 * @param factory
+	 *            The graphlet factory of the tree.
+	 * @param order
+	 *            The order of the tree.
+	 * @return the cached tree, or <code>null</code> if there is no valid one.
+	 */
+	public <T extends AbstractGraphlet<U>, U extends Comparable<U>> GraphletTree<T, U> loadTree(
+			AbstractGraphletFactory<T, U> factory, int order) {
+		byte[] contents = load(key("tree", factory, order));
+		if (contents == null) {
+			return null;
+		}
+		try {
+			GraphletTree<T, U> tree = TreeIO.read(new DataInputStream(new ByteArrayInputStream(contents)), factory);
+			return tree.getOrder() == order ? tree : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given tree.
+	 *
+	 * @param tree
+	 *            The tree to be cached.
+	 * @throws IOException
+	 *             if the cache can not be written.
+	 */
+	public <T extends AbstractGraphlet<U>, U extends Comparable<U>> void storeTree(GraphletTree<T, U> tree)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TreeIO.write(tree, new DataOutputStream(bytes));
+		store(key("tree", tree.getFactory(), tree.getOrder()), bytes.toByteArray());
+	}
+
+	/**
+	 * Returns the cached equations for the given graphlets.
+	 *
+	 * @param factory
+	 *            The graphlet factory of the equations.
+	 * @param order
+	 *            The order of the equations.
+	 * @return the cached equations, or <code>null</code> if there are no valid
+	 *         ones.
+	 */
+	public <T extends AbstractGraphlet<U>, U extends Comparable<U>> Collection<Equation<T>> loadEquations(
+			AbstractGraphletFactory<T, U> factory, int order) {
+		byte[] contents = load(key("equations", factory, order));
+		if (contents == null) {
+			return null;
+		}
+		try {
+			return EquationIO.read(new DataInputStream(new ByteArrayInputStream(contents)), factory);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given equations.
+	 *
+	 * @param equations
+	 *            The equations to be cached.
+	 * @param factory
+	 *            The graphlet factory of the equations.
+	 * @param order
+	 *            The order of the equations.
+	 * @throws IOException
+	 *             if the cache can not be written.
+	 */
+	public <T extends AbstractGraphlet<U>, U extends Comparable<U>> void storeEquations(
+			Collection<Equation<T>> equations, AbstractGraphletFactory<T, U> factory, int order) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EquationIO.write(equations, factory, new DataOutputStream(bytes));
+		store(key("equations", factory, order), bytes.toByteArray());
+	}
+
+	/**
+	 * Returns the cached canonical table for the given graphlets.
+	 *
+	 * @param factory
+	 *            The graphlet factory of the table.
+	 * @return the cached table, or <code>null</code> if there is no valid one.
+	 */
+	public CanonicalTable loadTable(AbstractGraphletFactory<?, ?> factory) {
+		byte[] contents = load(key("table", factory, 0));
+		if (contents == null) {
+			return null;
+		}
+		try {
+			return CanonicalTable.read(new DataInputStream(new ByteArrayInputStream(contents)), factory);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given canonical table. A table holds every order that fits in
+	 * it, so its key has order 0.
+	 *
+	 * @param table
+	 *            The table to be cached.
+	 * @param factory
+	 *            The graphlet factory of the table.
+	 * @throws IOException
+	 *             if the cache can not be written.
+	 */
+	public void storeTable(CanonicalTable table, AbstractGraphletFactory<?, ?> factory) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		table.write(new DataOutputStream(bytes));
+		store(key("table", factory, 0), bytes.toByteArray());
+	}
+
+	private static String key(String kind, AbstractGraphletFactory<?, ?> factory, int order) {
+		return kind + "-" + factory.getClass().getName() + "-" + order + "-"
+				+ (factory.isOrbitRep() ? "orbits" : "graphlets") + "-" + factory.getEdgeTypes().size();
+	}
+
+	/**
+	 * Returns the contents of the entry with the given key, or <code>null</code>
+	 * if it is missing or invalid.
+	 */
+	private byte[] load(String key) {
+		if (directory == null) {
+			return null;
+		}
+		File file = new File(directory, key + ".cache");
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)) {
+				return null;
+			}
+			long checksum = in.readLong();
+			byte[] contents = new byte[in.readInt()];
+			in.readFully(contents);
+			if (in.read() != -1) {
+				return null;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(contents);
+			return crc.getValue() == checksum ? contents : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void store(String key, byte[] contents) throws IOException {
+		if (directory == null) {
+			return;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can not create " + directory);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+		File temporary = File.createTempFile(key, ".tmp", directory);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(key);
+				out.writeLong(crc.getValue());
+				out.writeInt(contents.length);
+				out.write(contents);
+			}
+			File file = new File(directory, key + ".cache");
+			try {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temporary.delete();
+		}
+	}
+}
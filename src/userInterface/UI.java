@@ -1,12 +1,11 @@
 package userInterface;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.InputMismatchException;
@@ -21,23 +20,50 @@ import java.util.TreeSet;
 
 import equationgeneration.Equation;
 import equationgeneration.EquationGenerator;
+import equationgeneration.EquationIO;
 import graphletgeneration.AbstractGraphletFactory;
 import graphletgeneration.GraphletIterator;
+import graphlets.AbstractCompactGraph;
 import graphlets.AbstractGraph;
 import graphlets.AbstractGraphlet;
+import graphlets.CanonicalCache;
+import graphlets.CanonicalTable;
 import graphlets.GraphletIO;
+import graphlets.MappedGraph;
+import graphlets.ThresholdSweep;
+import graphlets.diGraphlet.CompactDiGraph;
 import graphlets.diGraphlet.DiGraph;
 import graphlets.diGraphlet.DiGraphlet;
 import graphlets.diGraphlet.DiGraphletFactory;
 import graphlets.simpleGraphlet.SimpleGraph;
 import tree.GraphletTree;
 import tree.TreeGenerator;
+import tree.TreeIO;
+import treewalker.ColumnarResultSink;
 import treewalker.EquationWalker;
+import treewalker.ResultSink;
+import treewalker.TextResultSink;
 import treewalker.TreeWalker;
+import treewalker.TreeWalkerPool;
+import treewalker.TsvResultSink;
 
 public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 
 	private static Scanner reader;
+	/**
+	 * The minimal number of neighbours of one edge type for a node to get a
+	 * bitset row, from the <code>seadragon.hubdegree</code> system property. 0,
+	 * the default, gives no bitset rows.
+	 */
+	private static final int HUB_DEGREE = Integer.getInteger("seadragon.hubdegree", 0);
+	/**
+	 * How the nodes are renumbered after loading, from the
+	 * <code>seadragon.relabel</code> system property: <code>degree</code>,
+	 * <code>bandwidth</code> or <code>none</code>, the default.
+	 */
+	private static final String RELABEL = System.getProperty("seadragon.relabel", "none");
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static final ArtifactCache CACHE = ArtifactCache.getDefault();
 	private AbstractGraph<U> graph;
 	private AbstractGraphletFactory<T, U> factory;
 	private Collection<Equation<T>> equations;
@@ -121,7 +147,8 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		System.out.println("Give the graph file:");
 		String graphfile = reader.next();
 		System.out.println("What is the minimum score for the edges?");
-		double score = doubleLoop();
+		System.out.println("Give several scores, separated by commas, to count for each of them.");
+		double[] scores = doublesLoop();
 		System.out.println("Give the graphlet order");
 		int order = intLoop(3, Integer.MAX_VALUE);
 		System.out.println("Do you want to count graphlets or orbits?");
@@ -156,14 +183,48 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		}
 		System.out.println("Where do you want to save the results?");
 		String resultsFile = reader.next();
-		check( graphfile,
-				 graphType, 0,  useOrbits,  score,  order,  loadTree,  treeFile,
-				 loadEquations,  equationFile, resultsFile);
+		if (scores.length == 1) {
+			check( graphfile,
+					 graphType, 0,  useOrbits,  scores[0],  order,  loadTree,  treeFile,
+					 loadEquations,  equationFile, resultsFile);
+		} else {
+			sweep(graphfile, graphType, 0, useOrbits, scores, order, loadTree, treeFile, loadEquations, equationFile,
+					resultsFile);
+		}
 //		check(graphfile, graphType, score, useOrbits, loadTree, treeFile, order, loadEquations, equationFile,resultsFile);
 		reader.close();
 	}
 
+	/**
+	 * Counts the graphlets or orbits of an edge list for several score
+	 * thresholds if the arguments are <code>sweep</code>, the edge list, the
+	 * class of the graph, the column with the edge types (0 if there is none),
+	 * <code>graphlets</code> or <code>orbits</code>, the graphlet order, the
+	 * result file and the thresholds. Starts the interactive counter if the
+	 * only argument is <code>run</code>, and runs the benchmarks otherwise.
+	 *
+	 * @see #sweep(String, String, int, boolean, double[], int, int, String,
+	 *      int, String, String)
+	 */
 	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("run")) {
+			run();
+			return;
+		}
+		if (args.length > 0 && args[0].equals("sweep")) {
+			if (args.length < 8) {
+				System.out.println(
+						"Usage: UI sweep <edge list> <graph type> <column> graphlets|orbits <order> <result file> <score>...");
+				return;
+			}
+			double[] scores = new double[args.length - 7];
+			for (int i = 0; i < scores.length; i++) {
+				scores[i] = Double.parseDouble(args[i + 7]);
+			}
+			sweep(args[1], args[2], Integer.parseInt(args[3]), args[4].startsWith("o"), scores,
+					Integer.parseInt(args[5]), 0, "", 0, "", args[6]);
+			return;
+		}
 //		check("test/test.txt", "graphlets.coGraphlet.CoGraph",3,false, 0, 4, 0, "", 0, "", "test/candida_cographlets.out");
 		
 		long time;
@@ -192,42 +253,10 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		time = System.nanoTime();
 		check("test/candida.txt", "graphlets.diGraphlet.DiGraph",0,true, 0, 4, 0, "", 0, "", "test/candida_diorbits.out");
 		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.9");
-//		time = System.nanoTime();
-//		check(false, 0.9, 4, 0, "", 0, "", "test/human9.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.8");
-//		time = System.nanoTime();
-//		check(false, 0.8, 4, 0, "", 0, "", "test/human8.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.7");
-//		time = System.nanoTime();
-//		check(false, 0.7, 4, 0, "", 0, "", "test/human7.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.6");
-//		time = System.nanoTime();
-//		check(false, 0.6, 4, 0, "", 0, "", "test/human6.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.5");
-//		time = System.nanoTime();
-//		check(false, 0.5, 4, 0, "", 0, "", "test/human5.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.4");
-//		time = System.nanoTime();
-//		check(false, 0.4, 4, 0, "", 0, "", "test/human4.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.3");
-//		time = System.nanoTime();
-//		check(false, 0.3, 4, 0, "", 0, "", "test/human3.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.2");
-//		time = System.nanoTime();
-//		check(false, 0.2, 4, 0, "", 0, "", "test/human2.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
-//		System.out.println("human 4-orbits 0.1");
-//		time = System.nanoTime();
-//		check(false, 0.1, 4, 0, "", 0, "", "test/human1.out");
-//		System.out.println((System.nanoTime()-time)*1e-9);
+		System.out.println("human 4-orbits 0.9 to 0.1");
+		time = System.nanoTime();
+		sweep(false, new double[] { 0.9, 0.8, 0.7, 0.6, 0.5, 0.4, 0.3, 0.2, 0.1 }, 4, 0, "", 0, "", "test/human.out");
+		System.out.println((System.nanoTime()-time)*1e-9);
 //		 run("test/candida.txt","graphlets.diGraphlet.DiGraph", 0,false,0,"",4,0,"");
 	}
 
@@ -258,7 +287,7 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 	
 	public static void check(boolean useOrbits, double score, int order, int loadTree, String treeFile,
 			int loadEquations, String equationFile,String resultfile) throws Exception {
-		DiGraph graph =GraphletIO.readMatrix((float) score);
+		CompactDiGraph graph = GraphletIO.readMatrix((float) score);
 		AbstractGraphletFactory<DiGraphlet, Boolean> f = (AbstractGraphletFactory<DiGraphlet, Boolean>) graph.getGraphletType(useOrbits);
 		// GraphletIterator<T> gi = new GraphletIterator<>(f,order);
 		GraphletTree<DiGraphlet, Boolean> tree = getTree(loadTree, treeFile, f, order - 1);
@@ -274,9 +303,10 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		
 		TreeWalker<DiGraphlet, Boolean> tw = new EquationWalker<>(tree, graph, equations);
 		tw.reset();
-		PrintStream ps = new PrintStream(new File (resultfile));
 		System.out.println("Running...");
-		tw.run(ps);
+		try (ResultSink sink = openResults(resultfile, "")) {
+			new TreeWalkerPool<>(tw, THREADS).run(sink);
+		}
 		System.out.println("Finished");
 //		for (int i = 0; i < graph.getOrder(); i++) {
 //			NavigableMap<String, Long> run = tw.run(i);
@@ -314,10 +344,11 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		TreeWalker<T, U> tw = new EquationWalker<>(tree, graph, equations);
 		System.out.println((System.nanoTime()-time)/1e9+" s");
 		tw.reset();
-		PrintStream ps = new PrintStream(new File (resultfile));
 		System.out.println("Running...");
 		time = System.nanoTime();
-		tw.run(ps);
+		try (ResultSink sink = openResults(resultfile, "")) {
+			new TreeWalkerPool<>(tw, THREADS).run(sink);
+		}
 		System.out.println((System.nanoTime()-time)/1e9+" s");
 		System.out.println("Finished");
 //		for (int i = 0; i < graph.getOrder(); i++) {
@@ -335,17 +366,165 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 //		}
 	}
 
+	/**
+	 * Counts graphlets or orbits for several score thresholds, reading the edge
+	 * list only once. The tree and equations only depend on the graph type and
+	 * are made once; the graph for every threshold is extended from the one for
+	 * the previous, higher threshold. The results for a threshold are written to
+	 * the result file name followed by a dot and the threshold.
+	 */
+	public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void sweep(String graphfile,
+			String graphType, int column, boolean useOrbits, double[] scores, int order, int loadTree,
+			String treeFile, int loadEquations, String equationFile, String resultfile) throws Exception {
+		double[] thresholds = scores.clone();
+		Arrays.sort(thresholds);
+		System.out.println("Loading graph...");
+		ThresholdSweep<U> sweep = GraphletIO.readSweep(graphfile,
+				(Class<? extends AbstractGraph<U>>) Class.forName(graphType), column, thresholds[0]);
+		System.out.println(sweep.getEdgeCount() + " edges with score " + thresholds[0] + " or more");
+		UI.<T, U>sweep(sweep, thresholds, useOrbits, order, loadTree, treeFile, loadEquations, equationFile,
+				resultfile);
+	}
+
+	/**
+	 * Counts directed graphlets or orbits of the findr matrix for several
+	 * thresholds, like
+	 * {@link #check(boolean, double, int, int, String, int, String, String)} for
+	 * each of them, but reading the matrix only once.
+	 *
+	 * @see #sweep(String, String, int, boolean, double[], int, int, String,
+	 *      int, String, String)
+	 */
+	public static void sweep(boolean useOrbits, double[] scores, int order, int loadTree, String treeFile,
+			int loadEquations, String equationFile, String resultfile) throws Exception {
+		double[] thresholds = scores.clone();
+		Arrays.sort(thresholds);
+		System.out.println("Loading graph...");
+		ThresholdSweep<Boolean> sweep = GraphletIO.readMatrixSweep((float) thresholds[0]);
+		System.out.println(sweep.getEdgeCount() + " arcs with value above " + thresholds[0]);
+		UI.<DiGraphlet, Boolean>sweep(sweep, thresholds, useOrbits, order, loadTree, treeFile, loadEquations,
+				equationFile, resultfile);
+	}
+
+	/**
+	 * Counts for every threshold of the sweep, from high to low.
+	 *
+	 * @param thresholds
+	 *            The thresholds, in ascending order.
+	 */
+	private static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void sweep(ThresholdSweep<U> sweep,
+			double[] thresholds, boolean useOrbits, int order, int loadTree, String treeFile, int loadEquations,
+			String equationFile, String resultfile) throws Exception {
+		AbstractGraphletFactory<T, U> f = (AbstractGraphletFactory<T, U>) sweep.getGraphletType(useOrbits);
+		GraphletTree<T, U> tree = getTree(loadTree, treeFile, f, order - 1);
+		Collection<Equation<T>> equations = getEquations(loadEquations, equationFile, f, tree, order);
+		for (int i = thresholds.length - 1; i >= 0; i--) {
+			AbstractGraph<U> graph = sweep.getGraph(thresholds[i]);
+			System.out.println("Score " + thresholds[i] + ": " + graph.getOrder() + " nodes, " + graph.getSize()
+					+ " edges");
+			System.out.println("Calculating common neighbours...");
+			long time = System.nanoTime();
+			TreeWalker<T, U> tw = new EquationWalker<>(tree, compact(graph, RELABEL, HUB_DEGREE), equations);
+			System.out.println((System.nanoTime() - time) / 1e9 + " s");
+			tw.reset();
+			try (ResultSink sink = openResults(resultfile, "." + thresholds[i])) {
+				System.out.println("Running...");
+				time = System.nanoTime();
+				new TreeWalkerPool<>(tw, THREADS).run(sink);
+				System.out.println((System.nanoTime() - time) / 1e9 + " s");
+			}
+		}
+		System.out.println("Finished");
+	}
+
+	/**
+	 * Opens the sink for the results: a {@link ColumnarResultSink} if the result
+	 * file name ends in <code>.cols</code>, a {@link TsvResultSink} if it ends in
+	 * <code>.tsv</code> and a {@link TextResultSink} otherwise.
+	 *
+	 * @param resultfile
+	 *            The result file name, which determines the format.
+	 * @param suffix
+	 *            Appended to the result file name to get the file that is
+	 *            written.
+	 * @return the opened sink.
+	 * @throws IOException
+	 *             if the file can not be opened.
+	 */
+	private static ResultSink openResults(String resultfile, String suffix) throws IOException {
+		File file = new File(resultfile + suffix);
+		if (resultfile.endsWith(".cols")) {
+			return new ColumnarResultSink(file);
+		} else if (resultfile.endsWith(".tsv")) {
+			return new TsvResultSink(new FileOutputStream(file));
+		} else {
+			return new TextResultSink(new PrintStream(file));
+		}
+	}
+
 	private static <U extends Comparable<U>> AbstractGraph<U> getGraph(String graphfile,
 			Class<? extends AbstractGraph<U>> type, double score, int column) {
 		AbstractGraph<U> graph;
 		System.out.println("Loading graph...");
+		if (MappedGraph.isMappedGraph(new File(graphfile))) {
+			try {
+				MappedGraph<U> mapped = MappedGraph.open(new File(graphfile));
+				if (!mapped.getGraphType().equals(type.getName())) {
+					System.out.println("Graph file contains a " + mapped.getGraphType());
+					return null;
+				}
+				System.out.println(mapped.getOrder()+" nodes, "+mapped.getSize()+" edges");
+				return mapped;
+			} catch (IOException e) {
+				System.out.println("Invalid graph file");
+				return null;
+			}
+		}
 		if (score == 0) {
-			graph = GraphletIO.readGraph(graphfile, (type),column);
+			graph = GraphletIO.readFrozenGraph(graphfile, type, column);
 		} else {
-			graph = GraphletIO.readGraph(graphfile, type, column, score);
+			graph = GraphletIO.readFrozenGraph(graphfile, type, column, score);
 		}
 		System.out.println(graph.getOrder()+" nodes, "+graph.getSize()+" edges");
-		return graph;
+		return compact(graph, RELABEL, HUB_DEGREE);
+	}
+
+	/**
+	 * Replaces the given graph by its frozen, compact version. Counting never
+	 * modifies the graph, so this can be done as soon as the graph is loaded. The
+	 * nodes can be renumbered by decreasing degree or in reverse Cuthill-McKee
+	 * order; results are still written in the original node order. Nodes with at
+	 * least the given number of neighbours of one edge type also get a bitset
+	 * row.
+	 *
+	 * @param graph
+	 *            The loaded graph.
+	 * @param relabel
+	 *            <code>degree</code> or <code>bandwidth</code> to renumber the
+	 *            nodes, <code>none</code> to keep their numbers.
+	 * @param hubDegree
+	 *            The minimal number of neighbours for a bitset row, or 0 for no
+	 *            bitset rows.
+	 * @return the frozen version of the graph.
+	 * @throws IllegalArgumentException
+	 *             if the relabelling is not one of the above.
+	 */
+	private static <U extends Comparable<U>> AbstractGraph<U> compact(AbstractGraph<U> graph, String relabel,
+			int hubDegree) {
+		AbstractGraph<U> result = graph.freeze();
+		if (result instanceof AbstractCompactGraph) {
+			if (relabel.equals("degree")) {
+				result = ((AbstractCompactGraph<U>) result).relabelByDegree();
+			} else if (relabel.equals("bandwidth")) {
+				result = ((AbstractCompactGraph<U>) result).relabelByBandwidth();
+			} else if (!relabel.equals("none")) {
+				throw new IllegalArgumentException("Unknown relabelling " + relabel);
+			}
+			if (hubDegree > 0) {
+				result = ((AbstractCompactGraph<U>) result).indexHubs(hubDegree);
+			}
+		}
+		return result;
 	}
 
 	// public static <T extends AbstractGraphlet<U>, U extends Comparable<U>> void
@@ -382,28 +561,38 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 			int order) {
 		if (loadEquations == 1) {
 			// GraphletTree<?, ?> tree = null;
-			if (fileName.substring(fileName.length() - 5).equals(".equ"))
-				try (FileInputStream fis = new FileInputStream(fileName);
-						ObjectInputStream ois = new ObjectInputStream(fis);) {
+			if (fileName.substring(fileName.length() - 4).equals(".equ"))
+				try {
 					System.out.println("Loading equations...");
-					Collection<Equation<T>> equations = (List<Equation<T>>) ois.readObject();
-					return equations;
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
+					return EquationIO.read(new File(fileName), factory);
 				} catch (IOException e) {
 					e.printStackTrace();
-				} catch (ClassNotFoundException e) {
-					e.printStackTrace();
 				}
 			return null;
 		} else {
-			System.out.println("Generating equations...");
-			long time = System.nanoTime();
-			Collection<Equation<T>> result = new EquationGenerator<T, U>(factory, order, tree).generateEquations();
-			System.out.println((System.nanoTime()-time)/1e9+" s");
+			Collection<Equation<T>> result = CACHE.loadEquations(factory, order);
+			if (result != null) {
+				System.out.println("Loaded equations from cache");
+			} else {
+				installCanonicalTable(factory);
+				System.out.println("Generating equations...");
+				long time = System.nanoTime();
+				result = new EquationGenerator<T, U>(factory, order, tree).generateEquations();
+				System.out.println((System.nanoTime()-time)/1e9+" s");
+				System.out.println("Canonical cache: " + CanonicalCache.getDefault());
+				try {
+					CACHE.storeEquations(result, factory, order);
+				} catch (IOException e) {
+					System.out.println("Could not cache equations: " + e.getMessage());
+				}
+			}
 			if (loadEquations == -1) {
 				System.out.println("Saving equations...");
-				GraphletIO.save(result, fileName);
+				try {
+					EquationIO.write(result, factory, new File(fileName));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
 			}
 			return result;
 		}
@@ -415,22 +604,29 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 			GraphletTree<T, U> tree = null;
 			if (fileName.substring(fileName.length() - 5).equals(".tree"))
 				System.out.println("Loading tree...");
-			try (FileInputStream fis = new FileInputStream(fileName);
-					ObjectInputStream ois = new ObjectInputStream(fis);) {
-				tree = (GraphletTree<T, U>) ois.readObject();
-			} catch (FileNotFoundException e) {
-				e.printStackTrace();
+			try {
+				tree = TreeIO.read(new File(fileName), factory);
 			} catch (IOException e) {
 				e.printStackTrace();
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
 			}
 			return tree;
 		} else {
-			System.out.println("Generating tree...");
-			long time = System.nanoTime();
-			GraphletTree<T, U> tree = new TreeGenerator<>(factory, order).generateTree();
-			System.out.println((System.nanoTime()-time)/1e9+" s");
+			GraphletTree<T, U> tree = CACHE.loadTree(factory, order);
+			if (tree != null) {
+				System.out.println("Loaded tree from cache");
+			} else {
+				installCanonicalTable(factory);
+				System.out.println("Generating tree...");
+				long time = System.nanoTime();
+				tree = new TreeGenerator<>(factory, order).generateTree();
+				System.out.println((System.nanoTime()-time)/1e9+" s");
+				System.out.println("Canonical cache: " + CanonicalCache.getDefault());
+				try {
+					CACHE.storeTree(tree);
+				} catch (IOException e) {
+					System.out.println("Could not cache tree: " + e.getMessage());
+				}
+			}
 			if (loadTree == -1) {
 				System.out.println("Saving tree...");
 				GraphletIO.save(tree, fileName);
@@ -440,6 +636,24 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		}
 	}
 
+	/**
+	 * Loads the canonical table of the given factory's graphlets from the cache,
+	 * or builds and caches it, and installs it for generating trees and
+	 * equations.
+	 */
+	private static void installCanonicalTable(AbstractGraphletFactory<?, ?> factory) {
+		CanonicalTable table = CACHE.loadTable(factory);
+		if (table == null) {
+			table = CanonicalTable.build(factory);
+			try {
+				CACHE.storeTable(table, factory);
+			} catch (IOException e) {
+				System.out.println("Could not cache canonical table: " + e.getMessage());
+			}
+		}
+		CanonicalTable.install(table);
+	}
+
 	// private static Set<String> ORBITS;
 
 	// private static void makeSets() {
@@ -499,19 +713,20 @@ public class UI<T extends AbstractGraphlet<U>, U extends Comparable<U>> {
 		}
 	}
 
-	private static double doubleLoop() {
+	private static double[] doublesLoop() {
 		while (true) {
+			String[] pieces = reader.next().split(",");
+			double[] result = new double[pieces.length];
 			try {
-				double i = reader.nextDouble();
-				if (i < 0 || i > 1) {
-					System.out.print("Please enter a number between 0 and 1");
-				} else {
-					return i;
+				for (int i = 0; i < pieces.length; i++) {
+					result[i] = Double.parseDouble(pieces[i]);
+					if (result[i] < 0 || result[i] > 1) {
+						throw new NumberFormatException();
+					}
 				}
-
-			} catch (InputMismatchException e) {
-				reader.next();
-				System.out.print("Please enter a number between 0 and 1");
+				return result;
+			} catch (NumberFormatException e) {
+				System.out.print("Please enter numbers between 0 and 1, separated by commas");
 			}
 		}
 	}